@@ -1,9 +1,13 @@
 package com.ragheb.ecommerce.customer;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -34,6 +38,21 @@ public class CustomerController {
         return ResponseEntity.ok(service.findAllCustomers());
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<CustomerPageResponse> findPage(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "size", defaultValue = "50") @Positive @Max(500) int size
+    ) {
+        return ResponseEntity.ok(service.findPage(after, size));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(service::streamAll);
+    }
+
     @GetMapping("/exists/{customer-id}")
     public ResponseEntity<Boolean> existsById(@PathVariable("customer-id") String customerId) {
         return ResponseEntity.ok(service.existsById(customerId));
@@ -0,0 +1,9 @@
+package com.ragheb.ecommerce.customer;
+
+import java.util.List;
+
+public record CustomerPageResponse(
+        List<CustomerResponse> customers,
+        String nextCursor
+) {
+}
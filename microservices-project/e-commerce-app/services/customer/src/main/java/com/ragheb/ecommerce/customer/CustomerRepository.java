@@ -1,6 +1,18 @@
 package com.ragheb.ecommerce.customer;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface CustomerRepository extends MongoRepository<Customer, String> {
+
+    List<Customer> findAllByOrderById(Limit limit);
+
+    List<Customer> findAllByIdGreaterThanOrderById(String id, Limit limit);
+
+    @Query(value = "{}", sort = "{ '_id': 1 }")
+    Stream<Customer> streamAll();
 }
@@ -1,13 +1,20 @@
 package com.ragheb.ecommerce.customer;
 
 import com.ragheb.ecommerce.exception.CustomerNotFoundException;
+import com.ragheb.ecommerce.kafka.CustomerEventProducer;
+import com.ragheb.ecommerce.kafka.CustomerEventType;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang.StringUtils;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -15,6 +22,8 @@ public class CustomerService {
 
     private final CustomerRepository repository;
     private final CustomerMapper mapper;
+    private final ObjectMapper objectMapper;
+    private final CustomerEventProducer customerEventProducer;
 
     public String createCustomer(@Valid CustomerRequest request) {
         var customer = repository.save(mapper.toCustomer(request));
@@ -28,6 +37,7 @@ public class CustomerService {
                 ));
         mergerCustomer(customer, request);
         repository.save(customer);
+        customerEventProducer.sendCustomerEvent(customer.getId(), CustomerEventType.UPDATED);
     }
 
     private void mergerCustomer(Customer customer, @Valid CustomerRequest request) {
@@ -65,5 +75,27 @@ public class CustomerService {
 
     public void deleteCustomer(String customerId) {
         repository.deleteById(customerId);
+        customerEventProducer.sendCustomerEvent(customerId, CustomerEventType.DELETED);
+    }
+
+    public CustomerPageResponse findPage(String after, int size) {
+        var customers = (after == null
+                ? repository.findAllByOrderById(Limit.of(size))
+                : repository.findAllByIdGreaterThanOrderById(after, Limit.of(size)))
+                .stream()
+                .map(mapper::fromCustomer)
+                .collect(Collectors.toList());
+        var nextCursor = customers.size() < size ? null : customers.get(customers.size() - 1).id();
+        return new CustomerPageResponse(customers, nextCursor);
+    }
+
+    public void streamAll(OutputStream out) throws IOException {
+        try (Stream<Customer> customers = repository.streamAll()) {
+            var iterator = customers.iterator();
+            while (iterator.hasNext()) {
+                out.write(objectMapper.writeValueAsBytes(mapper.fromCustomer(iterator.next())));
+                out.write('\n');
+            }
+        }
     }
 }
@@ -0,0 +1,7 @@
+package com.ragheb.ecommerce.kafka;
+
+public record CustomerEvent(
+        String customerId,
+        CustomerEventType type
+) {
+}
@@ -0,0 +1,27 @@
+package com.ragheb.ecommerce.kafka;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CustomerEventProducer {
+
+    private final KafkaTemplate<String, CustomerEvent> kafkaTemplate;
+
+    public void sendCustomerEvent(String customerId, CustomerEventType type) {
+        log.info("Sending customer {} event for <{}>", type, customerId);
+        Message<CustomerEvent> message = MessageBuilder
+                .withPayload(new CustomerEvent(customerId, type))
+                .setHeader(KafkaHeaders.TOPIC, "customer-topic")
+                .setHeader(KafkaHeaders.KEY, customerId)
+                .build();
+        kafkaTemplate.send(message);
+    }
+}
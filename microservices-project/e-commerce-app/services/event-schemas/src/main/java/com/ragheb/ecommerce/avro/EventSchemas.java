@@ -0,0 +1,59 @@
+package com.ragheb.ecommerce.avro;
+
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+
+/**
+ * The schemas of the events written to Kafka, kept in this module only so producers and
+ * consumers cannot drift apart. Amounts use the {@code decimal} logical type, which
+ * {@link #MODEL} converts to and from {@link BigDecimal}.
+ */
+public final class EventSchemas {
+
+    public static final Schema ORDER_CONFIRMATION = FileSchemaRegistry.classpathSchema("avro/order-confirmation.avsc");
+    public static final Schema PAYMENT_CONFIRMATION = FileSchemaRegistry.classpathSchema("avro/payment-confirmation.avsc");
+
+    public static final GenericData MODEL = new GenericData();
+
+    static {
+        MODEL.addLogicalTypeConversion(new Conversions.DecimalConversion());
+    }
+
+    private EventSchemas() {
+    }
+
+    /**
+     * Rounds the value to the scale of the decimal schema, the conversion refuses values that
+     * do not fit it exactly.
+     */
+    public static BigDecimal decimal(BigDecimal value, Schema schema) {
+        if (value == null) {
+            return null;
+        }
+        var decimal = (LogicalTypes.Decimal) FileSchemaRegistry.nonNull(schema).getLogicalType();
+        return value.setScale(decimal.getScale(), RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Reads an amount, also from records written before the logical type was used, when an amount
+     * was a record of its unscaled bytes and its scale.
+     */
+    public static BigDecimal readDecimal(Object value) {
+        if (value == null || value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        var record = (GenericRecord) value;
+        var buffer = ((ByteBuffer) record.get("unscaled")).duplicate();
+        var unscaled = new byte[buffer.remaining()];
+        buffer.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), (Integer) record.get("scale"));
+    }
+}
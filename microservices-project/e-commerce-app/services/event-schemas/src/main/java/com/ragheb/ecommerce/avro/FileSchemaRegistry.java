@@ -0,0 +1,97 @@
+package com.ragheb.ecommerce.avro;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.message.SchemaStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local stand-in for a schema registry. Writer schemas are stored as {@code <fingerprint>.avsc}
+ * files in a directory shared by producers and consumers, so a consumer can resolve every schema
+ * version a producer has ever written, not only the one on its own classpath.
+ */
+public class FileSchemaRegistry implements SchemaStore {
+
+    private final Path directory;
+    private final Map<Long, Schema> schemas = new ConcurrentHashMap<>();
+
+    public FileSchemaRegistry(Path directory) {
+        this.directory = directory;
+    }
+
+    public static Schema classpathSchema(String resource) {
+        try (InputStream in = FileSchemaRegistry.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Schema " + resource + " is not on the classpath");
+            }
+            return new Schema.Parser().parse(in);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read schema " + resource, ex);
+        }
+    }
+
+    public static Schema nonNull(Schema schema) {
+        if (schema.getType() != Schema.Type.UNION) {
+            return schema;
+        }
+        return schema.getTypes().stream()
+                .filter(type -> type.getType() != Schema.Type.NULL)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    public void register(Schema schema) {
+        long fingerprint = SchemaNormalization.parsingFingerprint64(schema);
+        schemas.put(fingerprint, schema);
+        if (directory == null) {
+            return;
+        }
+        var file = file(fingerprint);
+        if (Files.exists(file)) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            var temp = Files.createTempFile(directory, ".schema", ".tmp");
+            try {
+                Files.writeString(temp, schema.toString(true));
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot register schema " + schema.getFullName(), ex);
+        }
+    }
+
+    @Override
+    public Schema findByFingerprint(long fingerprint) {
+        var schema = schemas.get(fingerprint);
+        if (schema != null || directory == null) {
+            return schema;
+        }
+        var file = file(fingerprint);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            schema = new Schema.Parser().parse(file.toFile());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read schema " + file, ex);
+        }
+        schemas.put(fingerprint, schema);
+        return schema;
+    }
+
+    private Path file(long fingerprint) {
+        return directory.resolve(String.format("%016x.avsc", fingerprint));
+    }
+}
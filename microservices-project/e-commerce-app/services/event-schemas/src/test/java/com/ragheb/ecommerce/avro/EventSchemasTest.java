@@ -0,0 +1,62 @@
+package com.ragheb.ecommerce.avro;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventSchemasTest {
+
+    @Test
+    void writesAmountsAsDecimalLogicalType() throws Exception {
+        var schema = EventSchemas.PAYMENT_CONFIRMATION;
+        var record = new GenericData.Record(schema);
+        record.put("orderReference", "MS-1");
+        record.put("amount", EventSchemas.decimal(new BigDecimal("12.5"), schema.getField("amount").schema()));
+
+        var encoded = new BinaryMessageEncoder<GenericRecord>(EventSchemas.MODEL, schema).encode(record);
+        var decoded = new BinaryMessageDecoder<GenericRecord>(EventSchemas.MODEL, schema).decode(encoded);
+
+        assertThat(decoded.get("amount")).isEqualTo(new BigDecimal("12.50"));
+    }
+
+    @Test
+    void writesProductPricesAsDecimalLogicalType() throws Exception {
+        var schema = EventSchemas.ORDER_CONFIRMATION;
+        var productSchema = schema.getField("products").schema().getElementType();
+        var product = new GenericData.Record(productSchema);
+        product.put("price", EventSchemas.decimal(new BigDecimal("3.999"), productSchema.getField("price").schema()));
+        product.put("quantity", 2.0);
+        var record = new GenericData.Record(schema);
+        record.put("products", List.of(product));
+
+        var encoded = new BinaryMessageEncoder<GenericRecord>(EventSchemas.MODEL, schema).encode(record);
+        var decoded = new BinaryMessageDecoder<GenericRecord>(EventSchemas.MODEL, schema).decode(encoded);
+
+        var decodedProduct = (GenericRecord) ((List<?>) decoded.get("products")).get(0);
+        assertThat(EventSchemas.readDecimal(decodedProduct.get("price"))).isEqualTo(new BigDecimal("4.00"));
+    }
+
+    @Test
+    void readsAmountsWrittenAsUnscaledAndScaleRecords() {
+        Schema legacy = SchemaBuilder.record("Decimal").fields()
+                .requiredBytes("unscaled")
+                .requiredInt("scale")
+                .endRecord();
+        var amount = new GenericData.Record(legacy);
+        amount.put("unscaled", ByteBuffer.wrap(new BigDecimal("99.95").unscaledValue().toByteArray()));
+        amount.put("scale", 2);
+
+        assertThat(EventSchemas.readDecimal(amount)).isEqualTo(new BigDecimal("99.95"));
+        assertThat(EventSchemas.readDecimal(null)).isNull();
+    }
+}
@@ -0,0 +1,19 @@
+package com.ragheb.gateway.cache;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+
+/**
+ * @param tag    event source that invalidates this entry, {@code null} if only the TTL applies
+ * @param itemId id taken from the last path segment, {@code null} for collection responses
+ */
+public record CachedResponse(
+        String tag,
+        Integer itemId,
+        HttpHeaders headers,
+        byte[] body,
+        String etag,
+        Duration ttl
+) {
+}
@@ -0,0 +1,9 @@
+package com.ragheb.gateway.cache;
+
+import java.util.List;
+
+public record ProductEvent(
+        List<Integer> productIds,
+        String type
+) {
+}
@@ -0,0 +1,120 @@
+package com.ragheb.gateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Response bodies cached by {@link ResponseCacheGatewayFilterFactory}, bounded by their total size
+ * in bytes. Each entry expires after the TTL of its route, and product entries are evicted as soon
+ * as the product service announces a change.
+ */
+@Component
+public class ResponseCache {
+
+    public static final String PRODUCT_TAG = "product";
+
+    private static final Logger log = LoggerFactory.getLogger(ResponseCache.class);
+
+    private final Cache<String, CachedResponse> cache;
+    // "<tag>/*" for collection entries and "<tag>/<id>" for item entries, to the cache keys they cover
+    private final Map<String, Set<String>> index = new ConcurrentHashMap<>();
+
+    public ResponseCache(MeterRegistry meterRegistry,
+                         @Value("${application.config.response-cache.maximum-bytes:67108864}") long maximumBytes) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((String key, CachedResponse response) -> key.length() + response.body().length)
+                .expireAfter(new Expiry<String, CachedResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedResponse response, long currentTime) {
+                        return response.ttl().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedResponse response, long currentTime,
+                                                  long currentDuration) {
+                        return response.ttl().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedResponse response, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .removalListener((String key, CachedResponse response, RemovalCause cause) -> unindex(key, response, cause))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "gateway-response-cache");
+    }
+
+    public CachedResponse get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void put(String key, CachedResponse response) {
+        if (response.tag() != null) {
+            index.computeIfAbsent(indexKey(response), ignored -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+        cache.put(key, response);
+    }
+
+    // an item entry only goes when its own id changed, any collection entry of the tag may list it
+    public void invalidate(String tag, Collection<Integer> itemIds) {
+        var keys = new ArrayList<String>();
+        collect(tag + "/*", keys);
+        for (Integer itemId : itemIds) {
+            collect(tag + "/" + itemId, keys);
+        }
+        cache.invalidateAll(keys);
+    }
+
+    private void collect(String indexKey, Collection<String> keys) {
+        var indexed = index.remove(indexKey);
+        if (indexed != null) {
+            keys.addAll(indexed);
+        }
+    }
+
+    private void unindex(String key, CachedResponse response, RemovalCause cause) {
+        // a replaced or re-cached key belongs to a newer entry that is indexed under the same name
+        if (response == null || response.tag() == null || cause == RemovalCause.REPLACED
+                || cache.asMap().containsKey(key)) {
+            return;
+        }
+        index.computeIfPresent(indexKey(response), (indexKey, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private static String indexKey(CachedResponse response) {
+        return response.tag() + "/" + (response.itemId() == null ? "*" : response.itemId());
+    }
+
+    // every instance uses its own group so each gateway sees every invalidation
+    @KafkaListener(
+            topics = "product-topic",
+            groupId = "gateway-response-cache-${random.uuid}",
+            properties = "auto.offset.reset=latest"
+    )
+    public void onProductEvent(ProductEvent event) {
+        log.debug("Evicting cached responses for products <{}> after {} event", event.productIds(), event.type());
+        invalidate(PRODUCT_TAG, event.productIds());
+    }
+}
@@ -0,0 +1,247 @@
+package com.ragheb.gateway.cache;
+
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Serves repeated GETs of a route from {@link ResponseCache}. Only complete 200 responses that are
+ * neither private nor streamed are stored. Every cached response carries an ETag, and a matching
+ * If-None-Match is answered with 304. Use it as {@code ResponseCache=<ttl>[,<invalidating event>]}.
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    private static final Set<String> STREAMING_TYPES = Set.of(
+            MediaType.APPLICATION_NDJSON_VALUE,
+            MediaType.TEXT_EVENT_STREAM_VALUE
+    );
+    private static final List<String> UNCACHED_HEADERS = List.of(
+            HttpHeaders.CONTENT_LENGTH,
+            HttpHeaders.TRANSFER_ENCODING,
+            HttpHeaders.CONNECTION,
+            HttpHeaders.DATE,
+            HttpHeaders.ETAG
+    );
+
+    private final ResponseCache cache;
+    private final int maxEntryBytes;
+
+    public ResponseCacheGatewayFilterFactory(
+            ResponseCache cache,
+            @Value("${application.config.response-cache.max-entry-bytes:1048576}") int maxEntryBytes) {
+        super(Config.class);
+        this.cache = cache;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("ttl", "invalidatedBy");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // must run before NettyWriteResponseFilter so the decorated response is the one written to
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            if (exchange.getRequest().getMethod() != HttpMethod.GET) {
+                return chain.filter(exchange);
+            }
+            var key = key(exchange);
+            var cached = cache.get(key);
+            var cacheControl = exchange.getRequest().getHeaders().getCacheControl();
+            if (cached != null && (cacheControl == null || !cacheControl.contains("no-cache"))) {
+                return writeCached(exchange, cached);
+            }
+            var response = new CachingResponse(exchange, key, config);
+            return chain.filter(exchange.mutate().response(response).build());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> writeCached(ServerWebExchange exchange, CachedResponse cached) {
+        var response = exchange.getResponse();
+        response.getHeaders().addAll(cached.headers());
+        response.getHeaders().setETag(cached.etag());
+        if (notModified(exchange, cached.etag())) {
+            return writeNotModified(response);
+        }
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    private static Mono<Void> writeNotModified(ServerHttpResponse response) {
+        response.setStatusCode(HttpStatus.NOT_MODIFIED);
+        response.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+        response.getHeaders().remove(HttpHeaders.CONTENT_TYPE);
+        response.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+        return response.setComplete();
+    }
+
+    private static boolean notModified(ServerWebExchange exchange, String etag) {
+        for (String candidate : exchange.getRequest().getHeaders().getIfNoneMatch()) {
+            if ("*".equals(candidate) || weak(candidate).equals(weak(etag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String weak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static String key(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        var request = exchange.getRequest();
+        var query = request.getURI().getRawQuery();
+        var accept = request.getHeaders().getFirst(HttpHeaders.ACCEPT);
+        return (route == null ? "" : route.getId()) + ' '
+                + request.getURI().getRawPath() + (query == null ? "" : '?' + query) + ' '
+                + (accept == null ? "" : accept);
+    }
+
+    private static Integer itemId(ServerWebExchange exchange) {
+        var path = exchange.getRequest().getURI().getPath();
+        var lastSegment = path.substring(path.lastIndexOf('/') + 1);
+        if (lastSegment.isEmpty() || lastSegment.length() > 9 || !lastSegment.chars().allMatch(Character::isDigit)) {
+            return null;
+        }
+        return Integer.valueOf(lastSegment);
+    }
+
+    private class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final String key;
+        private final Config config;
+
+        CachingResponse(ServerWebExchange exchange, String key, Config config) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.key = key;
+            this.config = config;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (!cacheable()) {
+                return super.writeWith(body);
+            }
+            // bodies of unknown length are only buffered up to the entry limit, larger ones pass through
+            var total = new AtomicLong();
+            return Flux.from(body).cast(DataBuffer.class)
+                    .bufferUntil(buffer -> total.addAndGet(buffer.readableByteCount()) > maxEntryBytes)
+                    .switchOnFirst((first, parts) -> {
+                        if (first.isOnError() || (first.hasValue() && total.get() > maxEntryBytes)) {
+                            return getDelegate().writeWith(parts.flatMapIterable(buffers -> buffers));
+                        }
+                        return write(first.hasValue() ? drain(first.get()) : new byte[0]);
+                    })
+                    .then();
+        }
+
+        private byte[] drain(List<DataBuffer> buffers) {
+            var bytes = new byte[buffers.stream().mapToInt(DataBuffer::readableByteCount).sum()];
+            int offset = 0;
+            for (DataBuffer buffer : buffers) {
+                int length = buffer.readableByteCount();
+                buffer.read(bytes, offset, length);
+                offset += length;
+                DataBufferUtils.release(buffer);
+            }
+            return bytes;
+        }
+
+        private Mono<Void> write(byte[] bytes) {
+            var headers = getHeaders();
+            var etag = headers.getETag() != null ? headers.getETag() : "\"" + DigestUtils.md5DigestAsHex(bytes) + "\"";
+            headers.setETag(etag);
+            if (bytes.length <= maxEntryBytes) {
+                var stored = new HttpHeaders();
+                headers.forEach((name, values) -> {
+                    if (UNCACHED_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                        stored.addAll(name, values);
+                    }
+                });
+                cache.put(key, new CachedResponse(
+                        config.getInvalidatedBy(),
+                        itemId(exchange),
+                        HttpHeaders.readOnlyHttpHeaders(stored),
+                        bytes,
+                        etag,
+                        config.getTtl()
+                ));
+            }
+            if (notModified(exchange, etag)) {
+                return writeNotModified(getDelegate());
+            }
+            headers.remove(HttpHeaders.TRANSFER_ENCODING);
+            headers.setContentLength(bytes.length);
+            return getDelegate().writeWith(Mono.just(bufferFactory().wrap(bytes)));
+        }
+
+        private boolean cacheable() {
+            var headers = getHeaders();
+            if (!HttpStatus.OK.equals(getStatusCode()) || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+                return false;
+            }
+            var contentType = headers.getContentType();
+            if (contentType != null && STREAMING_TYPES.contains(contentType.getType() + '/' + contentType.getSubtype())) {
+                return false;
+            }
+            var cacheControl = headers.getCacheControl();
+            if (cacheControl != null && (cacheControl.contains("no-store") || cacheControl.contains("private"))) {
+                return false;
+            }
+            return headers.getContentLength() <= maxEntryBytes;
+        }
+    }
+
+    public static class Config {
+
+        private Duration ttl = Duration.ofSeconds(30);
+        private String invalidatedBy;
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public String getInvalidatedBy() {
+            return invalidatedBy;
+        }
+
+        public void setInvalidatedBy(String invalidatedBy) {
+            this.invalidatedBy = invalidatedBy;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.ragheb.gateway.security;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Remembers tokens that passed full verification, keyed by their SHA-256 hash, until they expire or
+ * at most max-ttl. Concurrent requests with the same unverified token share one verification, and
+ * tokens that fail verification are never cached.
+ */
+public class CachingReactiveJwtDecoder implements ReactiveJwtDecoder {
+
+    private final ReactiveJwtDecoder delegate;
+    private final MeterRegistry meterRegistry;
+    private final AsyncCache<String, Jwt> cache;
+
+    public CachingReactiveJwtDecoder(ReactiveJwtDecoder delegate, MeterRegistry meterRegistry,
+                                     long maximumSize, Duration maxTtl) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Jwt>() {
+                    @Override
+                    public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+                        if (jwt.getExpiresAt() == null) {
+                            return maxTtl.toNanos();
+                        }
+                        var remaining = Duration.between(Instant.now(), jwt.getExpiresAt());
+                        return Math.max(0, Math.min(remaining.toNanos(), maxTtl.toNanos()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "gateway-jwt-cache");
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) throws JwtException {
+        var key = hash(token);
+        // the future is shared with other requests, one cancelled request must not cancel it
+        return Mono.fromFuture(() -> cache.get(key, (ignored, executor) -> verify(token).toFuture()), true);
+    }
+
+    private Mono<Jwt> verify(String token) {
+        return Mono.defer(() -> {
+            var sample = Timer.start(meterRegistry);
+            return delegate.decode(token)
+                    .doOnSuccess(jwt -> sample.stop(meterRegistry.timer("gateway.jwt.verification", "outcome", "success")))
+                    .doOnError(ex -> sample.stop(meterRegistry.timer("gateway.jwt.verification", "outcome", "failure")));
+        });
+    }
+
+    private static String hash(String token) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.ragheb.gateway.security;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the Keycloak JWK set in memory and refreshes it in the background, so key rotation never
+ * puts a JWKS download on the request path. A token signed with an unknown key triggers one extra
+ * refresh, at most once per min-refresh-interval, which concurrent requests share.
+ */
+@Component
+public class PrefetchingJwkSource {
+
+    private static final Logger log = LoggerFactory.getLogger(PrefetchingJwkSource.class);
+
+    private final WebClient webClient;
+    private final MeterRegistry meterRegistry;
+    private final String jwkSetUri;
+    private final Duration refreshInterval;
+    private final Duration minRefreshInterval;
+    private final Duration fetchTimeout;
+
+    private final AtomicReference<JWKSet> current = new AtomicReference<>();
+    private final AtomicLong lastRefreshNanos = new AtomicLong(System.nanoTime());
+    private volatile Mono<JWKSet> lastRefresh = Mono.empty();
+    private Disposable prefetch;
+
+    public PrefetchingJwkSource(WebClient.Builder webClientBuilder,
+                                MeterRegistry meterRegistry,
+                                @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+                                @Value("${application.config.jwks.refresh-interval-seconds:300}") long refreshIntervalSeconds,
+                                @Value("${application.config.jwks.min-refresh-interval-seconds:30}") long minRefreshIntervalSeconds,
+                                @Value("${application.config.jwks.fetch-timeout-ms:2000}") long fetchTimeoutMs) {
+        this.webClient = webClientBuilder.build();
+        this.meterRegistry = meterRegistry;
+        this.jwkSetUri = jwkSetUri;
+        this.refreshInterval = Duration.ofSeconds(refreshIntervalSeconds);
+        this.minRefreshInterval = Duration.ofSeconds(minRefreshIntervalSeconds);
+        this.fetchTimeout = Duration.ofMillis(fetchTimeoutMs);
+    }
+
+    @PostConstruct
+    void start() {
+        prefetch = Flux.interval(Duration.ZERO, refreshInterval)
+                .concatMap(tick -> {
+                    lastRefreshNanos.set(System.nanoTime());
+                    var refresh = fetch().cache();
+                    lastRefresh = refresh;
+                    return refresh;
+                })
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (prefetch != null) {
+            prefetch.dispose();
+        }
+    }
+
+    public Flux<JWK> keys(SignedJWT jwt) {
+        var selector = new JWKSelector(JWKMatcher.forJWSHeader(jwt.getHeader()));
+        var jwkSet = current.get();
+        if (jwkSet != null) {
+            var keys = selector.select(jwkSet);
+            if (!keys.isEmpty()) {
+                return Flux.fromIterable(keys);
+            }
+        }
+        return refreshOnMiss().flatMapIterable(selector::select);
+    }
+
+    private Mono<JWKSet> refreshOnMiss() {
+        long last = lastRefreshNanos.get();
+        long now = System.nanoTime();
+        if (now - last < minRefreshInterval.toNanos() || !lastRefreshNanos.compareAndSet(last, now)) {
+            // a refresh that is still running is shared, a finished one already updated current
+            return lastRefresh.switchIfEmpty(Mono.fromSupplier(current::get));
+        }
+        var refresh = fetch().cache();
+        lastRefresh = refresh;
+        return refresh;
+    }
+
+    private Mono<JWKSet> fetch() {
+        var sample = Timer.start(meterRegistry);
+        return webClient.get()
+                .uri(jwkSetUri)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(fetchTimeout)
+                .map(this::parse)
+                .doOnNext(jwkSet -> {
+                    current.set(jwkSet);
+                    sample.stop(meterRegistry.timer("gateway.jwks.refresh", "outcome", "success"));
+                    log.debug("Refreshed JWK set with {} keys", jwkSet.getKeys().size());
+                })
+                .onErrorResume(ex -> {
+                    sample.stop(meterRegistry.timer("gateway.jwks.refresh", "outcome", "failure"));
+                    log.warn("Cannot refresh JWK set from {}, keeping the previous keys", jwkSetUri, ex);
+                    return Mono.justOrEmpty(current.get());
+                });
+    }
+
+    private JWKSet parse(String body) {
+        try {
+            return JWKSet.parse(body);
+        } catch (ParseException ex) {
+            throw new IllegalStateException("Invalid JWK set from " + jwkSetUri, ex);
+        }
+    }
+}
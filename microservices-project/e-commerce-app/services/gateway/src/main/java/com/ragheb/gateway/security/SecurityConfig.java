@@ -1,12 +1,19 @@
 package com.ragheb.gateway.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 
+import java.time.Duration;
+
 @Configuration
 @EnableWebFluxSecurity
 public class SecurityConfig {
@@ -18,10 +25,26 @@ public class SecurityConfig {
                 .authorizeExchange(exchange -> exchange
                         .pathMatchers("/eureka/**")
                         .permitAll()
+                        // stock release and the per order stock calls are only made service to service
+                        .pathMatchers("/api/v1/products/release", "/api/v1/products/orders/**")
+                        .denyAll()
                         .anyExchange()
                         .authenticated()
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2.jwt(Customizer.withDefaults()));
         return serverHttpSecurity.build();
     }
+
+    @Bean
+    public ReactiveJwtDecoder jwtDecoder(
+            PrefetchingJwkSource jwkSource,
+            MeterRegistry meterRegistry,
+            @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuerUri,
+            @Value("${application.config.jwt-cache.maximum-size:100000}") long maximumSize,
+            @Value("${application.config.jwt-cache.max-ttl-seconds:300}") long maxTtlSeconds
+    ) {
+        var decoder = NimbusReactiveJwtDecoder.withJwkSource(jwkSource::keys).build();
+        decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+        return new CachingReactiveJwtDecoder(decoder, meterRegistry, maximumSize, Duration.ofSeconds(maxTtlSeconds));
+    }
 }
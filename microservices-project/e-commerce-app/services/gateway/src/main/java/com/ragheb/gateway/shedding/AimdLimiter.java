@@ -0,0 +1,62 @@
+package com.ragheb.gateway.shedding;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that grows by one per limit's worth of fast responses and is cut by the
+ * backoff ratio whenever the backend answers slowly or signals overload. Sheddable requests may
+ * only use the read share of the limit, so writes still get through when reads are being shed.
+ */
+class AimdLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final double readShare;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    AimdLimiter(LoadSheddingGatewayFilterFactory.Config config) {
+        this.minLimit = config.getMinLimit();
+        this.maxLimit = config.getMaxLimit();
+        this.latencyThresholdNanos = config.getLatencyThreshold().toNanos();
+        this.backoffRatio = config.getBackoffRatio();
+        this.readShare = config.getReadShare();
+        this.limit = config.getInitialLimit();
+    }
+
+    boolean tryAcquire(boolean sheddable) {
+        double allowed = sheddable ? limit * readShare : limit;
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release(long latencyNanos, boolean overloaded) {
+        int current = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (overloaded || latencyNanos > latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (current * 2 >= limit) {
+                // only grow while the limit is actually in use, an idle route keeps its limit
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    double getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,47 @@
+package com.ragheb.gateway.shedding;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+/**
+ * Picks the {@link LocalRateLimiter} bucket of a request. End users are keyed by the subject of
+ * their token, so every user has a bucket of their own whichever client they log in with. The
+ * service clients listed in {@code application.config.shedding.service-clients} are keyed by
+ * client id under {@link #SERVICE_PREFIX}; the rate limiter lets them through, their calls are
+ * made on behalf of users that were already counted and only the concurrency limit applies.
+ */
+@Component
+public class ClientKeyResolver implements KeyResolver {
+
+    public static final String SERVICE_PREFIX = "service:";
+    public static final String USER_PREFIX = "user:";
+
+    private final Set<String> serviceClients;
+
+    public ClientKeyResolver(@Value("${application.config.shedding.service-clients:}") Set<String> serviceClients) {
+        this.serviceClients = Set.copyOf(serviceClients);
+    }
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        // no key means the request is denied, only authenticated requests reach the rate limiter
+        return exchange.getPrincipal().map(principal -> {
+            if (principal instanceof JwtAuthenticationToken token) {
+                var clientId = token.getToken().getClaimAsString("azp");
+                if (clientId != null && serviceClients.contains(clientId)) {
+                    return SERVICE_PREFIX + clientId;
+                }
+                if (token.getToken().getSubject() != null) {
+                    return USER_PREFIX + token.getToken().getSubject();
+                }
+            }
+            return USER_PREFIX + principal.getName();
+        });
+    }
+}
@@ -0,0 +1,181 @@
+package com.ragheb.gateway.shedding;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Sheds requests with 503 once a route has as many requests in flight as its {@link AimdLimiter}
+ * allows. Low priority requests are shed first, so order placement and the calls it makes keep
+ * going while catalog browsing degrades. A route's priority is {@code high}, {@code low} or
+ * {@code auto}, where reads are low priority; requests from the service clients listed in
+ * {@code application.config.shedding.service-clients} are always high priority. Use it as
+ * {@code LoadShedding[=<initial limit>,<max limit>,<priority>]}.
+ */
+@Component
+public class LoadSheddingGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<LoadSheddingGatewayFilterFactory.Config> {
+
+    private static final Set<HttpMethod> SHEDDABLE_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS);
+    private static final Set<Integer> OVERLOAD_STATUSES = Set.of(
+            HttpStatus.BAD_GATEWAY.value(),
+            HttpStatus.SERVICE_UNAVAILABLE.value(),
+            HttpStatus.GATEWAY_TIMEOUT.value(),
+            HttpStatus.TOO_MANY_REQUESTS.value()
+    );
+
+    private final MeterRegistry meterRegistry;
+    private final ClientKeyResolver clientKeyResolver;
+    // kept across route refreshes so a reload does not reset what the limiters have learned
+    private final Map<String, AimdLimiter> limiters = new ConcurrentHashMap<>();
+
+    public LoadSheddingGatewayFilterFactory(MeterRegistry meterRegistry,
+                                            ClientKeyResolver clientKeyResolver) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+        this.clientKeyResolver = clientKeyResolver;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("initialLimit", "maxLimit", "priority");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            var routeId = route == null ? "unknown" : route.getId();
+            var limiter = limiters.computeIfAbsent(routeId, id -> register(id, new AimdLimiter(config)));
+            return sheddable(exchange, config).flatMap(sheddable -> {
+                if (!limiter.tryAcquire(sheddable)) {
+                    meterRegistry.counter("gateway.shed",
+                            "route", routeId,
+                            "reason", "concurrency",
+                            "priority", sheddable ? "low" : "high").increment();
+                    var response = exchange.getResponse();
+                    response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                    response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+                    return response.setComplete();
+                }
+                long start = System.nanoTime();
+                return chain.filter(exchange).doFinally(signal -> {
+                    var status = exchange.getResponse().getStatusCode();
+                    var overloaded = signal == SignalType.ON_ERROR
+                            || (status != null && OVERLOAD_STATUSES.contains(status.value()));
+                    limiter.release(System.nanoTime() - start, overloaded);
+                });
+            });
+        };
+    }
+
+    private Mono<Boolean> sheddable(ServerWebExchange exchange, Config config) {
+        return switch (config.getPriority()) {
+            case "high" -> Mono.just(false);
+            case "low" -> Mono.just(true);
+            default -> {
+                if (!SHEDDABLE_METHODS.contains(exchange.getRequest().getMethod())) {
+                    yield Mono.just(false);
+                }
+                // reads made by other services on behalf of a write, e.g. the customer check of an order
+                yield clientKeyResolver.resolve(exchange)
+                        .map(key -> !key.startsWith(ClientKeyResolver.SERVICE_PREFIX))
+                        .defaultIfEmpty(true);
+            }
+        };
+    }
+
+    private AimdLimiter register(String routeId, AimdLimiter limiter) {
+        Gauge.builder("gateway.concurrency.limit", limiter, AimdLimiter::getLimit)
+                .tag("route", routeId)
+                .register(meterRegistry);
+        Gauge.builder("gateway.concurrency.in-flight", limiter, AimdLimiter::getInFlight)
+                .tag("route", routeId)
+                .register(meterRegistry);
+        return limiter;
+    }
+
+    public static class Config {
+
+        private int initialLimit = 100;
+        private int minLimit = 10;
+        private int maxLimit = 1000;
+        private Duration latencyThreshold = Duration.ofMillis(500);
+        private double backoffRatio = 0.9;
+        private double readShare = 0.8;
+        private String priority = "auto";
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public Duration getLatencyThreshold() {
+            return latencyThreshold;
+        }
+
+        public void setLatencyThreshold(Duration latencyThreshold) {
+            this.latencyThreshold = latencyThreshold;
+        }
+
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public void setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+        }
+
+        public double getReadShare() {
+            return readShare;
+        }
+
+        public void setReadShare(double readShare) {
+            this.readShare = readShare;
+        }
+
+        public String getPriority() {
+            return priority;
+        }
+
+        public void setPriority(String priority) {
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.ragheb.gateway.shedding;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.constraints.Min;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process token bucket for the {@code RequestRateLimiter} filter, so per-client limits work
+ * without Redis. Each route and client pair has its own bucket, kept as a single theoretical
+ * arrival time that is advanced with a CAS (GCRA), so concurrent requests never take a lock.
+ * Buckets are local to each gateway instance. Requests that {@link ClientKeyResolver} keys as
+ * service clients are not counted.
+ */
+@Component
+public class LocalRateLimiter extends AbstractRateLimiter<LocalRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, AtomicLong> buckets;
+    private final Config defaultConfig;
+
+    public LocalRateLimiter(ConfigurationService configurationService,
+                            MeterRegistry meterRegistry,
+                            @Value("${application.config.rate-limit.maximum-clients:100000}") long maximumClients,
+                            @Value("${application.config.rate-limit.replenish-rate:100}") int replenishRate,
+                            @Value("${application.config.rate-limit.burst-capacity:200}") int burstCapacity) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.meterRegistry = meterRegistry;
+        // an idle bucket is full again after burst-capacity / replenish-rate, so it can be dropped
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumClients)
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+        this.defaultConfig = new Config();
+        this.defaultConfig.setReplenishRate(replenishRate);
+        this.defaultConfig.setBurstCapacity(burstCapacity);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        var config = getConfig().getOrDefault(routeId, defaultConfig);
+        if (id.startsWith(ClientKeyResolver.SERVICE_PREFIX)) {
+            return Mono.just(new Response(true, headers(config, config.getBurstCapacity())));
+        }
+        long interval = NANOS_PER_SECOND / config.getReplenishRate();
+        long increment = interval * config.getRequestedTokens();
+        long capacity = interval * config.getBurstCapacity();
+        var bucket = buckets.get(routeId + ' ' + id, key -> new AtomicLong(System.nanoTime() - capacity));
+
+        long now = System.nanoTime();
+        long arrival;
+        long next;
+        do {
+            arrival = bucket.get();
+            next = Math.max(arrival, now - capacity) + increment;
+            if (next - now > 0) {
+                // same tag keys as the concurrency counter, the rate limit applies regardless of priority
+                meterRegistry.counter("gateway.shed",
+                        "route", routeId,
+                        "reason", "rate-limit",
+                        "priority", "any").increment();
+                return Mono.just(new Response(false, headers(config, 0)));
+            }
+        } while (!bucket.compareAndSet(arrival, next));
+        long remaining = (now - next) / interval;
+        return Mono.just(new Response(true, headers(config, remaining)));
+    }
+
+    private static Map<String, String> headers(Config config, long remaining) {
+        return Map.of(
+                "X-RateLimit-Remaining", Long.toString(remaining),
+                "X-RateLimit-Replenish-Rate", Integer.toString(config.getReplenishRate()),
+                "X-RateLimit-Burst-Capacity", Integer.toString(config.getBurstCapacity())
+        );
+    }
+
+    @Validated
+    public static class Config {
+
+        @Min(1)
+        private int replenishRate = 100;
+
+        @Min(1)
+        private int burstCapacity = 200;
+
+        @Min(1)
+        private int requestedTokens = 1;
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public void setReplenishRate(int replenishRate) {
+            this.replenishRate = replenishRate;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public void setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public void setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.ragheb.gateway.shedding;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientKeyResolverTest {
+
+    private final ClientKeyResolver resolver = new ClientKeyResolver(Set.of("order-service", "payment-service"));
+
+    @Test
+    void keysEndUsersBySubjectWhateverClientTheyUse() {
+        assertThat(resolve(token("user-1", "web-app"))).isEqualTo("user:user-1");
+        assertThat(resolve(token("user-1", "mobile-app"))).isEqualTo("user:user-1");
+    }
+
+    @Test
+    void keysServiceClientsByClientId() {
+        assertThat(resolve(token("service-account-order-service", "order-service"))).isEqualTo("service:order-service");
+    }
+
+    @Test
+    void resolvesNoKeyWithoutPrincipal() {
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/products"));
+
+        assertThat(resolver.resolve(exchange).blockOptional()).isEmpty();
+    }
+
+    private String resolve(JwtAuthenticationToken token) {
+        var exchange = MockServerWebExchange.builder(MockServerHttpRequest.get("/api/v1/products"))
+                .principal(token)
+                .build();
+        return resolver.resolve(exchange).block();
+    }
+
+    private static JwtAuthenticationToken token(String subject, String clientId) {
+        var jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject(subject)
+                .claim("azp", clientId)
+                .build();
+        return new JwtAuthenticationToken(jwt);
+    }
+}
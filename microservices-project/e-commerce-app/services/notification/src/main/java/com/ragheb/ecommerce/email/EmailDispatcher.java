@@ -0,0 +1,207 @@
+package com.ragheb.ecommerce.email;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends emails from a bounded queue on a fixed set of workers. Each worker keeps one SMTP
+ * connection open and pushes whole batches through it, reconnecting only after a failure.
+ * A full queue blocks the submitting Kafka listener, which stops polling until the workers catch up.
+ * Every submitted email comes with a future that completes once the email was sent or given up
+ * after all retries; the listeners wait for it before their offsets are committed, so a crash
+ * redelivers the emails still queued instead of losing them, at the price of possibly sending
+ * some of them twice.
+ */
+@Service
+@Slf4j
+public class EmailDispatcher {
+
+    private final JavaMailSenderImpl mailSender;
+    private final BlockingQueue<PendingEmail> queue;
+    private final int workers;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final Timer sendTimer;
+    private final Counter failureCounter;
+    private final Counter retryCounter;
+    private final ExecutorService executor;
+    private volatile boolean running = true;
+
+    public EmailDispatcher(JavaMailSenderImpl mailSender,
+                           MeterRegistry meterRegistry,
+                           @Value("${application.config.email.queue-capacity:1000}") int queueCapacity,
+                           @Value("${application.config.email.workers:4}") int workers,
+                           @Value("${application.config.email.batch-size:20}") int batchSize,
+                           @Value("${application.config.email.max-attempts:5}") int maxAttempts,
+                           @Value("${application.config.email.initial-backoff-ms:200}") long initialBackoffMs,
+                           @Value("${application.config.email.max-backoff-ms:10000}") long maxBackoffMs) {
+        this.mailSender = mailSender;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        Gauge.builder("notification.email.queue.depth", queue, BlockingQueue::size)
+                .description("Emails waiting to be sent")
+                .register(meterRegistry);
+        this.sendTimer = Timer.builder("notification.email.send")
+                .description("Time spent sending one email over an open SMTP connection")
+                .register(meterRegistry);
+        this.failureCounter = Counter.builder("notification.email.failures")
+                .description("Emails dropped after all retries")
+                .register(meterRegistry);
+        this.retryCounter = Counter.builder("notification.email.retries")
+                .description("Email send attempts that were retried")
+                .register(meterRegistry);
+        var threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+            var thread = new Thread(runnable, "email-dispatcher-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void start() {
+        for (int i = 0; i < workers; i++) {
+            executor.submit(this::work);
+        }
+    }
+
+    public MimeMessage createMimeMessage() {
+        return mailSender.createMimeMessage();
+    }
+
+    /**
+     * Queues the message, blocking while the queue is full. The returned future completes when
+     * the message was sent or dropped after all retries, and fails if the dispatcher stops first.
+     */
+    public CompletableFuture<Void> submit(MimeMessage message) {
+        var email = new PendingEmail(message, new CompletableFuture<>());
+        try {
+            queue.put(email);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing email", ex);
+        }
+        return email.dispatched();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Email dispatcher stopped with {} unsent emails", queue.size());
+            executor.shutdownNow();
+            // their offsets are not committed, the emails are sent again after the restart
+            var unsent = new ArrayList<PendingEmail>();
+            queue.drainTo(unsent);
+            unsent.forEach(email -> email.dispatched().completeExceptionally(
+                    new IllegalStateException("Email dispatcher stopped before sending")));
+        }
+    }
+
+    private void work() {
+        Transport transport = null;
+        List<PendingEmail> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                var first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                for (PendingEmail email : batch) {
+                    transport = sendWithRetry(transport, email.message());
+                    email.dispatched().complete(null);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // only left over when interrupted, completing an already sent email changes nothing
+            batch.forEach(email -> email.dispatched().completeExceptionally(
+                    new IllegalStateException("Email dispatcher stopped before sending")));
+            close(transport);
+        }
+    }
+
+    private Transport sendWithRetry(Transport transport, MimeMessage message) throws InterruptedException {
+        long backoff = initialBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transport = connected(transport);
+                var open = transport;
+                sendTimer.recordCallable(() -> {
+                    message.saveChanges();
+                    open.sendMessage(message, message.getAllRecipients());
+                    return null;
+                });
+                return transport;
+            } catch (Exception ex) {
+                close(transport);
+                transport = null;
+                if (attempt >= maxAttempts) {
+                    failureCounter.increment();
+                    log.warn("WARNING - Cannot send email after {} attempts", attempt, ex);
+                    return null;
+                }
+                retryCounter.increment();
+                TimeUnit.MILLISECONDS.sleep(backoff);
+                backoff = Math.min(backoff * 2, maxBackoffMs);
+            }
+        }
+    }
+
+    private Transport connected(Transport transport) throws MessagingException {
+        if (transport != null && transport.isConnected()) {
+            return transport;
+        }
+        close(transport);
+        var protocol = mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp";
+        var fresh = mailSender.getSession().getTransport(protocol);
+        fresh.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+        return fresh;
+    }
+
+    private void close(Transport transport) {
+        if (transport == null) {
+            return;
+        }
+        try {
+            transport.close();
+        } catch (MessagingException ex) {
+            log.debug("Ignoring failure while closing SMTP connection", ex);
+        }
+    }
+
+    private record PendingEmail(MimeMessage message, CompletableFuture<Void> dispatched) {
+    }
+}
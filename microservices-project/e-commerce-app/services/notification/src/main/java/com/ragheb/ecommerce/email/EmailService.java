@@ -5,64 +5,51 @@ import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.context.Context;
-import org.thymeleaf.spring6.SpringTemplateEngine;
 
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class EmailService {
 
-    private final JavaMailSender mailSender;
-    private final SpringTemplateEngine templateEngine;
+    private final EmailDispatcher dispatcher;
+    private final EmailTemplateRenderer templateRenderer;
 
-    @Async
-    public void sendPaymentSuccessEmail(
+    public CompletableFuture<Void> sendPaymentSuccessEmail(
             String destinationEmail,
             String customerName,
             BigDecimal amount,
             String orderReference
     ) throws MessagingException {
-        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        MimeMessage mimeMessage = dispatcher.createMimeMessage();
         MimeMessageHelper messageHelper =
                 new MimeMessageHelper(mimeMessage,MimeMessageHelper.MULTIPART_MODE_RELATED, StandardCharsets.UTF_8.name());
         messageHelper.setFrom("contact@ragheb.com");
 
         final String templateName = EmailTemplates.PAYMENT_CONFIRMATION.getTemplate();
 
-        Map<String,Object> variables = new HashMap<>();
-        variables.put("customerName", customerName);
-        variables.put("amount", amount);
-        variables.put("orderReference", orderReference);
-
-        Context context = new Context();
-        context.setVariables(variables);
         messageHelper.setSubject(EmailTemplates.PAYMENT_CONFIRMATION.getSubject());
 
         try {
-            String htmlTemplate = templateEngine.process(templateName, context);
+            String htmlTemplate = templateRenderer.renderPaymentConfirmation(customerName, amount, orderReference);
             messageHelper.setText(htmlTemplate, true);
             messageHelper.setTo(destinationEmail);
-            mailSender.send(mimeMessage);
-            log.info("INFO - Email successfully sent to {} with template {},", destinationEmail, templateName);
+            var dispatched = dispatcher.submit(mimeMessage);
+            log.info("INFO - Email queued for {} with template {},", destinationEmail, templateName);
+            return dispatched;
         } catch (MessagingException e) {
             log.warn("WARNING - Cannot send email to {}", destinationEmail);
             throw new RuntimeException(e);
         }
     }
 
-    @Async
-    public void sendOrderConfirmationEmail(
+    public CompletableFuture<Void> sendOrderConfirmationEmail(
             String destinationEmail,
             String customerName,
             BigDecimal amount,
@@ -70,30 +57,24 @@ public class EmailService {
             List<Product> products
     ) throws MessagingException {
 
-        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        MimeMessage mimeMessage = dispatcher.createMimeMessage();
         MimeMessageHelper messageHelper = new MimeMessageHelper(mimeMessage, MimeMessageHelper.MULTIPART_MODE_MIXED_RELATED, StandardCharsets.UTF_8.name());
         messageHelper.setFrom("contact@ragheb.com");
 
         final String templateName = EmailTemplates.ORDER_CONFIRMATION.getTemplate();
 
-        Map<String, Object> variables = new HashMap<>();
-        variables.put("customerName", customerName);
-        variables.put("totalAmount", amount);
-        variables.put("orderReference", orderReference);
-        variables.put("products", products);
-
-        Context context = new Context();
-        context.setVariables(variables);
         messageHelper.setSubject(EmailTemplates.ORDER_CONFIRMATION.getSubject());
 
         try {
-            String htmlTemplate = templateEngine.process(templateName, context);
+            String htmlTemplate = templateRenderer.renderOrderConfirmation(customerName, amount, orderReference, products);
             messageHelper.setText(htmlTemplate, true);
             messageHelper.setTo(destinationEmail);
-            mailSender.send(mimeMessage);
-            log.info("INFO - Email successfully sent to {} with template {} ", destinationEmail, templateName);
+            var dispatched = dispatcher.submit(mimeMessage);
+            log.info("INFO - Email queued for {} with template {} ", destinationEmail, templateName);
+            return dispatched;
         } catch (MessagingException e) {
             log.warn("WARNING - Cannot send Email to {} ", destinationEmail);
+            return CompletableFuture.completedFuture(null);
         }
     }
 }
@@ -0,0 +1,131 @@
+package com.ragheb.ecommerce.email;
+
+import com.ragheb.ecommerce.kafka.order.Product;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders the notification emails from templates precompiled at startup. Each precompiled template
+ * is checked once against a regular Thymeleaf render, and the engine stays in use for any template
+ * whose output does not match.
+ */
+@Service
+@Slf4j
+public class EmailTemplateRenderer {
+
+    private static final List<String> PRODUCT_FIELDS = List.of("name", "quantity", "price");
+
+    private final SpringTemplateEngine templateEngine;
+    private final int maxPooledCapacity;
+    private final Map<EmailTemplates, PrecompiledTemplate> compiled = new EnumMap<>(EmailTemplates.class);
+    // one builder per thread, dropped when a huge email has grown it past the limit
+    private final ThreadLocal<StringBuilder> builders;
+
+    public EmailTemplateRenderer(SpringTemplateEngine templateEngine,
+                                 @Value("${application.config.email.template-buffer-size:16384}") int initialCapacity,
+                                 @Value("${application.config.email.template-buffer-max-size:262144}") int maxPooledCapacity) {
+        this.templateEngine = templateEngine;
+        this.maxPooledCapacity = maxPooledCapacity;
+        this.builders = ThreadLocal.withInitial(() -> new StringBuilder(initialCapacity));
+    }
+
+    @PostConstruct
+    void precompile() {
+        precompile(EmailTemplates.PAYMENT_CONFIRMATION, List.of("customerName", "amount", "orderReference"), null);
+        precompile(EmailTemplates.ORDER_CONFIRMATION, List.of("customerName", "totalAmount", "orderReference"), "products");
+    }
+
+    public String renderPaymentConfirmation(String customerName, BigDecimal amount, String orderReference) {
+        Map<String, Object> variables = Map.of(
+                "customerName", nullToEmpty(customerName),
+                "amount", nullToEmpty(amount),
+                "orderReference", nullToEmpty(orderReference)
+        );
+        return render(EmailTemplates.PAYMENT_CONFIRMATION, variables, List.of());
+    }
+
+    public String renderOrderConfirmation(String customerName, BigDecimal totalAmount, String orderReference,
+                                          List<Product> products) {
+        Map<String, Object> variables = Map.of(
+                "customerName", nullToEmpty(customerName),
+                "totalAmount", nullToEmpty(totalAmount),
+                "orderReference", nullToEmpty(orderReference)
+        );
+        return render(EmailTemplates.ORDER_CONFIRMATION, variables, products == null ? List.of() : products);
+    }
+
+    private String render(EmailTemplates template, Map<String, Object> variables, List<Product> products) {
+        var precompiled = compiled.get(template);
+        if (precompiled == null) {
+            var context = new Context();
+            context.setVariables(variables);
+            context.setVariable("products", products);
+            return templateEngine.process(template.getTemplate(), context);
+        }
+        var out = builders.get();
+        out.setLength(0);
+        precompiled.render(out, variables::get, products, EmailTemplateRenderer::productValue);
+        var html = out.toString();
+        if (out.capacity() > maxPooledCapacity) {
+            builders.remove();
+        }
+        return html;
+    }
+
+    private void precompile(EmailTemplates template, List<String> variables, String rowsVariable) {
+        try {
+            var precompiled = PrecompiledTemplate.compile(
+                    templateEngine, template.getTemplate(), variables, rowsVariable, PRODUCT_FIELDS);
+            compiled.put(template, precompiled);
+            if (!matchesEngine(template)) {
+                compiled.remove(template);
+                log.warn("Precompiled {} differs from the Thymeleaf output, rendering it with the engine", template);
+            }
+        } catch (RuntimeException ex) {
+            compiled.remove(template);
+            log.warn("Cannot precompile {}, rendering it with the engine", template, ex);
+        }
+    }
+
+    private boolean matchesEngine(EmailTemplates template) {
+        var products = List.of(
+                new Product(1, "Keyboard <RGB> & \"Pro\"", "", new BigDecimal("99.90"), 2),
+                new Product(2, "Mouse 'Travel'", "", new BigDecimal("19.99"), 1.5)
+        );
+        Map<String, Object> variables = template == EmailTemplates.ORDER_CONFIRMATION
+                ? Map.of("customerName", "Jane <Doe>", "totalAmount", new BigDecimal("229.79"), "orderReference", "REF-1&2")
+                : Map.of("customerName", "Jane <Doe>", "amount", new BigDecimal("229.79"), "orderReference", "REF-1&2");
+        for (List<Product> rows : List.of(products, List.<Product>of())) {
+            var context = new Context();
+            context.setVariables(variables);
+            context.setVariable("products", rows);
+            var expected = templateEngine.process(template.getTemplate(), context);
+            if (!expected.equals(render(template, variables, rows))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Object productValue(Product product, String field) {
+        return switch (field) {
+            case "name" -> product.name();
+            case "quantity" -> product.quantity();
+            case "price" -> product.price();
+            default -> null;
+        };
+    }
+
+    private static Object nullToEmpty(Object value) {
+        return value == null ? "" : value;
+    }
+}
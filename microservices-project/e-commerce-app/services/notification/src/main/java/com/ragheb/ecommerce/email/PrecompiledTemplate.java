@@ -0,0 +1,166 @@
+package com.ragheb.ecommerce.email;
+
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+import org.unbescape.html.HtmlEscape;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A Thymeleaf template reduced to its static HTML and the slots between them. The template is
+ * rendered once with marker values, and the output is split around the markers. One render uses
+ * no rows and one uses two rows, which shows where the repeated row markup starts and ends.
+ * Rendering then only escapes and appends the dynamic values.
+ */
+final class PrecompiledTemplate {
+
+    private static final Pattern MARKER = Pattern.compile("__TPL_(row[01]_)?(\\w+?)__");
+    private static final String ROW_0 = "row0_";
+    private static final String ROW_1 = "row1_";
+
+    private final List<Object> withoutRows;
+    private final List<Object> head;
+    private final List<Object> row;
+    private final List<Object> separator;
+    private final List<Object> tail;
+
+    private PrecompiledTemplate(List<Object> withoutRows, List<Object> head, List<Object> row,
+                                List<Object> separator, List<Object> tail) {
+        this.withoutRows = withoutRows;
+        this.head = head;
+        this.row = row;
+        this.separator = separator;
+        this.tail = tail;
+    }
+
+    static PrecompiledTemplate compile(ITemplateEngine engine, String templateName, List<String> variables,
+                                       String rowsVariable, List<String> rowFields) {
+        var empty = split(engine.process(templateName, markerContext(variables, rowsVariable, rowFields, 0)));
+        if (rowsVariable == null) {
+            return new PrecompiledTemplate(empty, empty, List.of(), List.of(), List.of());
+        }
+        var twoRows = split(engine.process(templateName, markerContext(variables, rowsVariable, rowFields, 2)));
+        int firstOfRow0 = indexOfRowSlot(twoRows, ROW_0, true);
+        int lastOfRow0 = indexOfRowSlot(twoRows, ROW_0, false);
+        int firstOfRow1 = indexOfRowSlot(twoRows, ROW_1, true);
+        int lastOfRow1 = indexOfRowSlot(twoRows, ROW_1, false);
+        if (firstOfRow0 < 0 || firstOfRow1 < 0) {
+            throw new IllegalStateException("Template " + templateName + " does not render its " + rowsVariable + " rows");
+        }
+        var rowSegments = new ArrayList<Object>();
+        for (Object segment : twoRows.subList(firstOfRow0, lastOfRow0 + 1)) {
+            rowSegments.add(segment instanceof RowSlot slot ? new RowSlot(slot.field().substring(ROW_0.length())) : segment);
+        }
+        return new PrecompiledTemplate(
+                empty,
+                List.copyOf(twoRows.subList(0, firstOfRow0)),
+                rowSegments,
+                List.copyOf(twoRows.subList(lastOfRow0 + 1, firstOfRow1)),
+                List.copyOf(twoRows.subList(lastOfRow1 + 1, twoRows.size()))
+        );
+    }
+
+    <T> void render(StringBuilder out, Function<String, Object> variables, List<T> rows,
+                    BiFunction<T, String, Object> rowValue) {
+        if (rows == null || rows.isEmpty()) {
+            append(out, withoutRows, variables, null);
+            return;
+        }
+        append(out, head, variables, null);
+        for (int i = 0; i < rows.size(); i++) {
+            var current = rows.get(i);
+            append(out, row, variables, field -> rowValue.apply(current, field));
+            if (i < rows.size() - 1) {
+                append(out, separator, variables, null);
+            }
+        }
+        append(out, tail, variables, null);
+    }
+
+    private static void append(StringBuilder out, List<Object> segments, Function<String, Object> variables,
+                               Function<String, Object> rowValues) {
+        for (Object segment : segments) {
+            if (segment instanceof String literal) {
+                out.append(literal);
+            } else if (segment instanceof Slot slot) {
+                appendEscaped(out, variables.apply(slot.name()));
+            } else if (segment instanceof RowSlot slot) {
+                appendEscaped(out, rowValues.apply(slot.field()));
+            }
+        }
+    }
+
+    private static void appendEscaped(StringBuilder out, Object value) {
+        if (value != null) {
+            out.append(HtmlEscape.escapeHtml4Xml(value.toString()));
+        }
+    }
+
+    private static Context markerContext(List<String> variables, String rowsVariable, List<String> rowFields, int rowCount) {
+        var context = new Context();
+        for (String variable : variables) {
+            context.setVariable(variable, marker(variable));
+        }
+        if (rowsVariable != null) {
+            var rows = new ArrayList<Map<String, Object>>();
+            for (int i = 0; i < rowCount; i++) {
+                var row = new HashMap<String, Object>();
+                for (String field : rowFields) {
+                    row.put(field, marker("row" + i + "_" + field));
+                }
+                rows.add(row);
+            }
+            context.setVariable(rowsVariable, rows);
+        }
+        return context;
+    }
+
+    private static String marker(String name) {
+        return "__TPL_" + name + "__";
+    }
+
+    private static List<Object> split(String rendered) {
+        var segments = new ArrayList<Object>();
+        Matcher matcher = MARKER.matcher(rendered);
+        int last = 0;
+        while (matcher.find()) {
+            if (matcher.start() > last) {
+                segments.add(rendered.substring(last, matcher.start()));
+            }
+            segments.add(matcher.group(1) == null
+                    ? new Slot(matcher.group(2))
+                    : new RowSlot(matcher.group(1) + matcher.group(2)));
+            last = matcher.end();
+        }
+        if (last < rendered.length()) {
+            segments.add(rendered.substring(last));
+        }
+        return segments;
+    }
+
+    private static int indexOfRowSlot(List<Object> segments, String rowPrefix, boolean first) {
+        int found = -1;
+        for (int i = 0; i < segments.size(); i++) {
+            if (segments.get(i) instanceof RowSlot slot && slot.field().startsWith(rowPrefix)) {
+                if (first) {
+                    return i;
+                }
+                found = i;
+            }
+        }
+        return found;
+    }
+
+    private record Slot(String name) {
+    }
+
+    private record RowSlot(String field) {
+    }
+}
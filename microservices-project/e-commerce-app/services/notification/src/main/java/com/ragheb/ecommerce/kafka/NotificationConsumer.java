@@ -8,10 +8,14 @@ import com.ragheb.ecommerce.notification.Notification;
 import jakarta.mail.MessagingException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static com.ragheb.ecommerce.notification.NotificationType.ORDER_CONFIRMATION;
 import static com.ragheb.ecommerce.notification.NotificationType.PAYMENT_CONFIRMATION;
@@ -23,45 +27,81 @@ public class NotificationConsumer {
 
     private final NotificationRepository repository;
     private final EmailService emailService;
-    @KafkaListener(topics = "payment-topic")
-    public void consumePaymentSuccessNotifications(PaymentConfirmation paymentConfirmation) throws MessagingException {
-        log.info("Consuming the message from payment-topic Topic:: {}", paymentConfirmation);
-        repository.save(
-                Notification.builder()
-                        .type(PAYMENT_CONFIRMATION)
-                        .notificationDate(LocalDateTime.now())
-                        .paymentConfirmation(paymentConfirmation)
-                        .build()
-        );
-        var customerName = paymentConfirmation.customerFirstName() + " " + paymentConfirmation.customerLastName();
-        emailService.sendPaymentSuccessEmail(
-                paymentConfirmation.customerEmail(),
-                customerName,
-                paymentConfirmation.amount(),
-                paymentConfirmation.orderReference()
+
+    @KafkaListener(
+            topics = "payment-topic",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            concurrency = "${application.config.notification.payment-concurrency:1}"
+    )
+    public void consumePaymentSuccessNotifications(List<ConsumerRecord<String, PaymentConfirmation>> records) throws MessagingException {
+        log.info("Consuming {} messages from payment-topic Topic", records.size());
+        var notificationDate = LocalDateTime.now();
+        repository.upsertAll(
+                records.stream()
+                        .map(record -> Notification.builder()
+                                .id(idOf(record))
+                                .type(PAYMENT_CONFIRMATION)
+                                .notificationDate(notificationDate)
+                                .paymentConfirmation(record.value())
+                                .build())
+                        .toList()
         );
+        var dispatched = new ArrayList<CompletableFuture<Void>>(records.size());
+        for (ConsumerRecord<String, PaymentConfirmation> record : records) {
+            var paymentConfirmation = record.value();
+            var customerName = paymentConfirmation.customerFirstName() + " " + paymentConfirmation.customerLastName();
+            dispatched.add(emailService.sendPaymentSuccessEmail(
+                    paymentConfirmation.customerEmail(),
+                    customerName,
+                    paymentConfirmation.amount(),
+                    paymentConfirmation.orderReference()
+            ));
+        }
+        awaitDispatch(dispatched);
     }
 
-    @KafkaListener(topics = "order-topic")
-    public void consumeOrderConfirmationNotifications(OrderConfirmation orderConfirmation) throws MessagingException, MessagingException {
-        log.info("Consuming the message from order-topic Topic:: {}", orderConfirmation);
-        repository.save(
-                Notification.builder()
-                        .type(ORDER_CONFIRMATION)
-                        .notificationDate(LocalDateTime.now())
-                        .orderConfirmation(orderConfirmation)
-                        .build()
+    @KafkaListener(
+            topics = "order-topic",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            concurrency = "${application.config.notification.order-concurrency:1}"
+    )
+    public void consumeOrderConfirmationNotifications(List<ConsumerRecord<String, OrderConfirmation>> records) throws MessagingException {
+        log.info("Consuming {} messages from order-topic Topic", records.size());
+        var notificationDate = LocalDateTime.now();
+        repository.upsertAll(
+                records.stream()
+                        .map(record -> Notification.builder()
+                                .id(idOf(record))
+                                .type(ORDER_CONFIRMATION)
+                                .notificationDate(notificationDate)
+                                .orderConfirmation(record.value())
+                                .build())
+                        .toList()
         );
 
         // send email
-        var customerName = orderConfirmation.customer().firstname() + " " + orderConfirmation.customer().lastname();
-        emailService.sendOrderConfirmationEmail(
-                orderConfirmation.customer().email(),
-                customerName,
-                orderConfirmation.totalAmount(),
-                orderConfirmation.orderReference(),
-                orderConfirmation.products()
-        );
+        var dispatched = new ArrayList<CompletableFuture<Void>>(records.size());
+        for (ConsumerRecord<String, OrderConfirmation> record : records) {
+            var orderConfirmation = record.value();
+            var customerName = orderConfirmation.customer().firstname() + " " + orderConfirmation.customer().lastname();
+            dispatched.add(emailService.sendOrderConfirmationEmail(
+                    orderConfirmation.customer().email(),
+                    customerName,
+                    orderConfirmation.totalAmount(),
+                    orderConfirmation.orderReference(),
+                    orderConfirmation.products()
+            ));
+        }
+        awaitDispatch(dispatched);
     }
-}
 
+    // the batch offsets are committed when the listener returns, so only return once every email left the queue
+    private static void awaitDispatch(List<CompletableFuture<Void>> dispatched) {
+        CompletableFuture.allOf(dispatched.toArray(CompletableFuture[]::new)).join();
+    }
+
+    // a redelivered batch overwrites the documents it already wrote instead of duplicating them
+    private static String idOf(ConsumerRecord<?, ?> record) {
+        return record.topic() + "-" + record.partition() + "-" + record.offset();
+    }
+}
@@ -0,0 +1,13 @@
+package com.ragheb.ecommerce.kafka.payment;
+
+import com.ragheb.ecommerce.notification.Notification;
+
+import java.util.List;
+
+public interface NotificationBulkRepository {
+
+    /**
+     * Writes the notifications in one bulk request, replacing any document with the same id.
+     */
+    void upsertAll(List<Notification> notifications);
+}
@@ -0,0 +1,34 @@
+package com.ragheb.ecommerce.kafka.payment;
+
+import com.ragheb.ecommerce.notification.Notification;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@RequiredArgsConstructor
+public class NotificationBulkRepositoryImpl implements NotificationBulkRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void upsertAll(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        var bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Notification.class);
+        for (Notification notification : notifications) {
+            bulk.replaceOne(
+                    query(where("_id").is(notification.getId())),
+                    notification,
+                    FindAndReplaceOptions.options().upsert()
+            );
+        }
+        bulk.execute();
+    }
+}
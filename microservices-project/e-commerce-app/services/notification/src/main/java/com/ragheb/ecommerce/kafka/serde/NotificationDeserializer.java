@@ -0,0 +1,160 @@
+package com.ragheb.ecommerce.kafka.serde;
+
+import com.ragheb.ecommerce.avro.EventSchemas;
+import com.ragheb.ecommerce.avro.FileSchemaRegistry;
+import com.ragheb.ecommerce.kafka.order.Customer;
+import com.ragheb.ecommerce.kafka.order.OrderConfirmation;
+import com.ragheb.ecommerce.kafka.order.Product;
+import com.ragheb.ecommerce.kafka.payment.PaymentConfirmation;
+import com.ragheb.ecommerce.kafka.payment.PaymentMethod;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaCompatibility;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads order and payment confirmations written in Avro single-object encoding. The writer schema
+ * is looked up by its fingerprint and resolved against the local reader schema, so producers can
+ * evolve their schema independently. Writer schemas the reader schema cannot resolve, which are
+ * those from before amounts used the decimal logical type, are read as they were written.
+ * Messages without the Avro marker, such as those produced before the switch, are still read as JSON.
+ */
+public class NotificationDeserializer implements Deserializer<Object> {
+
+    public static final String SCHEMA_REGISTRY_DIR = "schema.registry.dir";
+
+    private static final Schema ORDER_CONFIRMATION = EventSchemas.ORDER_CONFIRMATION;
+    private static final Schema PAYMENT_CONFIRMATION = EventSchemas.PAYMENT_CONFIRMATION;
+    private static final byte MARKER_0 = (byte) 0xC3;
+    private static final byte MARKER_1 = (byte) 0x01;
+    private static final int HEADER_LENGTH = 10;
+
+    private final JsonDeserializer<Object> json = new JsonDeserializer<>();
+    private final Map<Long, BinaryMessageDecoder<GenericRecord>> decoders = new ConcurrentHashMap<>();
+    private FileSchemaRegistry registry;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+        var directory = configs.get(SCHEMA_REGISTRY_DIR);
+        registry = new FileSchemaRegistry(directory == null ? null : Path.of(directory.toString()));
+        registry.register(ORDER_CONFIRMATION);
+        registry.register(PAYMENT_CONFIRMATION);
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        return isAvro(data) ? decode(topic, data) : json.deserialize(topic, data);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        return isAvro(data) ? decode(topic, data) : json.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+
+    private static boolean isAvro(byte[] data) {
+        return data != null && data.length >= HEADER_LENGTH && data[0] == MARKER_0 && data[1] == MARKER_1;
+    }
+
+    private Object decode(String topic, byte[] data) {
+        long fingerprint = ByteBuffer.wrap(data, 2, 8).order(ByteOrder.LITTLE_ENDIAN).getLong();
+        var writer = registry.findByFingerprint(fingerprint);
+        if (writer == null) {
+            throw new SerializationException(
+                    String.format("Unknown schema fingerprint %016x on %s", fingerprint, topic));
+        }
+        try {
+            if (writer.getFullName().equals(ORDER_CONFIRMATION.getFullName())) {
+                return toOrderConfirmation(decoder(fingerprint, writer, ORDER_CONFIRMATION).decode(data));
+            }
+            if (writer.getFullName().equals(PAYMENT_CONFIRMATION.getFullName())) {
+                return toPaymentConfirmation(decoder(fingerprint, writer, PAYMENT_CONFIRMATION).decode(data));
+            }
+        } catch (IOException ex) {
+            throw new SerializationException("Cannot read " + writer.getFullName() + " from " + topic, ex);
+        }
+        throw new SerializationException("Unexpected record " + writer.getFullName() + " on " + topic);
+    }
+
+    private BinaryMessageDecoder<GenericRecord> decoder(long fingerprint, Schema writer, Schema reader) {
+        return decoders.computeIfAbsent(fingerprint, key -> {
+            var compatibility = SchemaCompatibility.checkReaderWriterCompatibility(reader, writer).getType();
+            var decoder = new BinaryMessageDecoder<GenericRecord>(EventSchemas.MODEL,
+                    compatibility == SchemaCompatibility.SchemaCompatibilityType.COMPATIBLE ? reader : writer);
+            decoder.addSchema(writer);
+            return decoder;
+        });
+    }
+
+    private static OrderConfirmation toOrderConfirmation(GenericRecord record) {
+        var products = new ArrayList<Product>();
+        for (Object product : (List<?>) record.get("products")) {
+            products.add(toProduct((GenericRecord) product));
+        }
+        var customer = (GenericRecord) record.get("customer");
+        return new OrderConfirmation(
+                string(record.get("orderReference")),
+                decimal(record.get("totalAmount")),
+                paymentMethod(record.get("paymentMethod")),
+                customer == null ? null : new Customer(
+                        string(customer.get("id")),
+                        string(customer.get("firstname")),
+                        string(customer.get("lastname")),
+                        string(customer.get("email"))
+                ),
+                products
+        );
+    }
+
+    private static Product toProduct(GenericRecord record) {
+        return new Product(
+                (Integer) record.get("productId"),
+                string(record.get("name")),
+                string(record.get("description")),
+                decimal(record.get("price")),
+                (Double) record.get("quantity")
+        );
+    }
+
+    private static PaymentConfirmation toPaymentConfirmation(GenericRecord record) {
+        return new PaymentConfirmation(
+                string(record.get("orderReference")),
+                decimal(record.get("amount")),
+                paymentMethod(record.get("paymentMethod")),
+                string(record.get("customerFirstName")),
+                string(record.get("customerLastName")),
+                string(record.get("customerEmail"))
+        );
+    }
+
+    private static String string(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static PaymentMethod paymentMethod(Object value) {
+        return value == null ? null : PaymentMethod.valueOf(value.toString());
+    }
+
+    private static BigDecimal decimal(Object value) {
+        return EventSchemas.readDecimal(value);
+    }
+}
@@ -0,0 +1,102 @@
+package com.ragheb.ecommerce.email;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Message;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailDispatcherTest {
+
+    private int port;
+    private GreenMail greenMail;
+    private SimpleMeterRegistry meterRegistry;
+    private EmailDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        greenMail = new GreenMail(new ServerSetup(port, "127.0.0.1", ServerSetup.PROTOCOL_SMTP));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+        greenMail.stop();
+    }
+
+    @Test
+    void sendsQueuedEmailsAndCompletesTheirFutures() throws Exception {
+        greenMail.start();
+        dispatcher = startDispatcher(5);
+
+        var first = dispatcher.submit(message("first@ragheb.com"));
+        var second = dispatcher.submit(message("second@ragheb.com"));
+
+        CompletableFuture.allOf(first, second).get(10, TimeUnit.SECONDS);
+        assertThat(greenMail.getReceivedMessages()).hasSize(2);
+        assertThat(meterRegistry.counter("notification.email.retries").count()).isZero();
+    }
+
+    @Test
+    void retriesWithBackoffUntilTheServerIsReachable() throws Exception {
+        dispatcher = startDispatcher(10);
+
+        var dispatched = dispatcher.submit(message("late@ragheb.com"));
+
+        TimeUnit.MILLISECONDS.sleep(300);
+        assertThat(dispatched).isNotDone();
+        greenMail.start();
+
+        dispatched.get(10, TimeUnit.SECONDS);
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(meterRegistry.counter("notification.email.retries").count()).isPositive();
+        assertThat(meterRegistry.counter("notification.email.failures").count()).isZero();
+    }
+
+    @Test
+    void dropsTheEmailAfterMaxAttemptsWithoutBlockingTheListener() throws Exception {
+        dispatcher = startDispatcher(3);
+
+        var dispatched = dispatcher.submit(message("nobody@ragheb.com"));
+
+        dispatched.get(10, TimeUnit.SECONDS);
+        assertThat(meterRegistry.counter("notification.email.retries").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("notification.email.failures").count()).isEqualTo(1);
+    }
+
+    private EmailDispatcher startDispatcher(int maxAttempts) {
+        var mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(port);
+        var dispatcher = new EmailDispatcher(mailSender, meterRegistry, 10, 1, 5, maxAttempts, 50, 200);
+        dispatcher.start();
+        return dispatcher;
+    }
+
+    private MimeMessage message(String to) throws Exception {
+        var message = dispatcher.createMimeMessage();
+        message.setFrom(new InternetAddress("contact@ragheb.com"));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress(to));
+        message.setSubject("Order confirmation");
+        message.setText("Your order was confirmed");
+        return message;
+    }
+}
@@ -0,0 +1,81 @@
+package com.ragheb.ecommerce.email;
+
+import com.ragheb.ecommerce.kafka.order.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order confirmation rendering through {@link EmailTemplateRenderer} against a plain Thymeleaf
+ * render of the same template. Run it with {@code mvn -Pbenchmarks test-compile exec:exec
+ * -Dbenchmark=TemplateRenderingBenchmark}, the gc profiler adds the allocation per render.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateRenderingBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int products;
+
+    private SpringTemplateEngine templateEngine;
+    private EmailTemplateRenderer renderer;
+    private List<Product> rows;
+
+    @Setup
+    public void setUp() {
+        var resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        renderer = new EmailTemplateRenderer(templateEngine, 16384, 262144);
+        renderer.precompile();
+        rows = new ArrayList<>();
+        for (int i = 0; i < products; i++) {
+            rows.add(new Product(i, "Product <" + i + "> & more", "", new BigDecimal("19.99"), 2));
+        }
+        // both sides must produce the same email, otherwise the numbers compare different work
+        if (!engine().equals(precompiled())) {
+            throw new IllegalStateException("Precompiled and Thymeleaf output differ");
+        }
+    }
+
+    @Benchmark
+    public String precompiled() {
+        return renderer.renderOrderConfirmation("Jane Doe", new BigDecimal("999.50"), "REF-42", rows);
+    }
+
+    @Benchmark
+    public String engine() {
+        var context = new Context();
+        context.setVariable("customerName", "Jane Doe");
+        context.setVariable("totalAmount", new BigDecimal("999.50"));
+        context.setVariable("orderReference", "REF-42");
+        context.setVariable("products", rows);
+        return templateEngine.process(EmailTemplates.ORDER_CONFIRMATION.getTemplate(), context);
+    }
+}
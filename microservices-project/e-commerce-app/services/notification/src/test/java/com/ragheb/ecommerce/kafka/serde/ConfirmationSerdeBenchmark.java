@@ -0,0 +1,150 @@
+package com.ragheb.ecommerce.kafka.serde;
+
+import com.ragheb.ecommerce.avro.EventSchemas;
+import com.ragheb.ecommerce.avro.FileSchemaRegistry;
+import com.ragheb.ecommerce.kafka.order.Customer;
+import com.ragheb.ecommerce.kafka.order.OrderConfirmation;
+import com.ragheb.ecommerce.kafka.order.Product;
+import com.ragheb.ecommerce.kafka.payment.PaymentMethod;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order confirmations written as Avro single-object messages against the JSON they replaced,
+ * both read back through {@link NotificationDeserializer}. The payload sizes are printed once
+ * per fork. Run it with {@code mvn -Pbenchmarks test-compile exec:exec
+ * -Dbenchmark=ConfirmationSerdeBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfirmationSerdeBenchmark {
+
+    private static final String TOPIC = "order-topic";
+    private static final Schema SCHEMA = EventSchemas.ORDER_CONFIRMATION;
+    private static final Schema CUSTOMER = FileSchemaRegistry.nonNull(SCHEMA.getField("customer").schema());
+    private static final Schema PAYMENT_METHOD = FileSchemaRegistry.nonNull(SCHEMA.getField("paymentMethod").schema());
+    private static final Schema PRODUCT = SCHEMA.getField("products").schema().getElementType();
+
+    @Param({"1", "10", "50"})
+    private int products;
+
+    private OrderConfirmation confirmation;
+    private BinaryMessageEncoder<GenericRecord> avroEncoder;
+    private JsonSerializer<Object> jsonSerializer;
+    private NotificationDeserializer deserializer;
+    private byte[] avro;
+    private byte[] json;
+
+    @Setup
+    public void setUp() {
+        var rows = new ArrayList<Product>();
+        for (int i = 0; i < products; i++) {
+            rows.add(new Product(i, "Product " + i, "Description of product " + i, new BigDecimal("19.99"), 2));
+        }
+        confirmation = new OrderConfirmation("MS-2025-000042", new BigDecimal("999.50"), PaymentMethod.VISA,
+                new Customer("67b0c2a1f4e5d6a7b8c9d0e1", "Jane", "Doe", "jane.doe@ragheb.com"), rows);
+        avroEncoder = new BinaryMessageEncoder<>(EventSchemas.MODEL, SCHEMA);
+        jsonSerializer = new JsonSerializer<>();
+        jsonSerializer.setAddTypeInfo(false);
+        deserializer = new NotificationDeserializer();
+        deserializer.configure(Map.of(
+                JsonDeserializer.TRUSTED_PACKAGES, "*",
+                JsonDeserializer.USE_TYPE_INFO_HEADERS, false,
+                JsonDeserializer.VALUE_DEFAULT_TYPE, OrderConfirmation.class.getName()
+        ), false);
+        avro = writeAvro();
+        json = writeJson();
+        if (!confirmation.equals(deserializer.deserialize(TOPIC, avro))
+                || !confirmation.equals(deserializer.deserialize(TOPIC, json))) {
+            throw new IllegalStateException("Avro and JSON do not read back the same confirmation");
+        }
+        System.out.printf("%n%d products: Avro %d bytes, JSON %d bytes%n", products, avro.length, json.length);
+    }
+
+    @TearDown
+    public void tearDown() {
+        jsonSerializer.close();
+        deserializer.close();
+    }
+
+    @Benchmark
+    public byte[] writeAvro() {
+        var out = new ByteArrayOutputStream(256);
+        try {
+            avroEncoder.encode(toRecord(confirmation), out);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] writeJson() {
+        return jsonSerializer.serialize(TOPIC, confirmation);
+    }
+
+    @Benchmark
+    public Object readAvro() {
+        return deserializer.deserialize(TOPIC, avro);
+    }
+
+    @Benchmark
+    public Object readJson() {
+        return deserializer.deserialize(TOPIC, json);
+    }
+
+    // the same record the order service builds in OrderConfirmationSerializer
+    private static GenericRecord toRecord(OrderConfirmation confirmation) {
+        var record = new GenericData.Record(SCHEMA);
+        record.put("orderReference", confirmation.orderReference());
+        record.put("totalAmount", EventSchemas.decimal(confirmation.totalAmount(), SCHEMA.getField("totalAmount").schema()));
+        record.put("paymentMethod", new GenericData.EnumSymbol(PAYMENT_METHOD, confirmation.paymentMethod().name()));
+        var customer = new GenericData.Record(CUSTOMER);
+        customer.put("id", confirmation.customer().id());
+        customer.put("firstname", confirmation.customer().firstname());
+        customer.put("lastname", confirmation.customer().lastname());
+        customer.put("email", confirmation.customer().email());
+        record.put("customer", customer);
+        List<GenericRecord> products = new ArrayList<>(confirmation.products().size());
+        for (Product product : confirmation.products()) {
+            var row = new GenericData.Record(PRODUCT);
+            row.put("productId", product.productId());
+            row.put("name", product.name());
+            row.put("description", product.description());
+            row.put("price", EventSchemas.decimal(product.price(), PRODUCT.getField("price").schema()));
+            row.put("quantity", product.quantity());
+            products.add(row);
+        }
+        record.put("products", products);
+        return record;
+    }
+}
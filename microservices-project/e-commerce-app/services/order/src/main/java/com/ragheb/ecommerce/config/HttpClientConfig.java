@@ -0,0 +1,80 @@
+package com.ragheb.ecommerce.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * One pooled HTTP client shared by the RestTemplate and all Feign clients of the order service,
+ * so calls to the gateway reuse kept-alive connections instead of opening a socket per request.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Value("${application.config.http-client.max-total:200}")
+    private int maxTotal;
+
+    @Value("${application.config.http-client.max-per-route:50}")
+    private int maxPerRoute;
+
+    @Value("${application.config.http-client.connect-timeout-ms:1000}")
+    private long connectTimeoutMs;
+
+    @Value("${application.config.http-client.read-timeout-ms:5000}")
+    private long readTimeoutMs;
+
+    @Value("${application.config.http-client.pool-timeout-ms:500}")
+    private long poolTimeoutMs;
+
+    @Value("${application.config.http-client.idle-eviction-seconds:30}")
+    private long idleEvictionSeconds;
+
+    @Value("${application.config.http-client.time-to-live-seconds:300}")
+    private long timeToLiveSeconds;
+
+    @Bean
+    public PoolingHttpClientConnectionManager httpConnectionManager() {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(
+                        ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                                .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                                .setTimeToLive(TimeValue.ofSeconds(timeToLiveSeconds))
+                                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                                .build()
+                )
+                .build();
+    }
+
+    @Bean
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager httpConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(httpConnectionManager)
+                .setDefaultRequestConfig(
+                        RequestConfig.custom()
+                                .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolTimeoutMs))
+                                .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                                .build()
+                )
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(idleEvictionSeconds))
+                .build();
+    }
+
+    @Bean
+    public MeterBinder httpConnectionPoolMetrics(PoolingHttpClientConnectionManager httpConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(httpConnectionManager, "order-http-client");
+    }
+}
@@ -0,0 +1,26 @@
+package com.ragheb.ecommerce.config;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Looks up the partitions of a topic, for listeners that assign themselves every partition
+ * instead of joining a consumer group.
+ */
+@Component("partitionFinder")
+@RequiredArgsConstructor
+public class KafkaPartitionFinder {
+
+    private final ConsumerFactory<?, ?> consumerFactory;
+
+    public String[] partitions(String topic) {
+        try (Consumer<?, ?> consumer = consumerFactory.createConsumer()) {
+            return consumer.partitionsFor(topic)
+                    .stream()
+                    .map(partitionInfo -> String.valueOf(partitionInfo.partition()))
+                    .toArray(String[]::new);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.ragheb.ecommerce.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class OrderFanOutConfig {
+
+    @Value("${application.config.fan-out.pool-size:16}")
+    private int poolSize;
+
+    @Bean
+    public ThreadPoolTaskExecutor orderFanOutExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(poolSize * 4);
+        executor.setThreadNamePrefix("order-fan-out-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,7 @@
+package com.ragheb.ecommerce.customer;
+
+public record CustomerEvent(
+        String customerId,
+        String type
+) {
+}
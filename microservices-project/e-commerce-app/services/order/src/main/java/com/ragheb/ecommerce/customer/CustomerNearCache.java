@@ -0,0 +1,81 @@
+package com.ragheb.ecommerce.customer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, TTL-based cache in front of {@link CustomerClient}. Entries are evicted as soon as the
+ * customer service announces an update or delete, the TTL only bounds staleness if an event is lost.
+ * A lookup that overlaps an invalidation does not cache its result, so a customer read before an
+ * update cannot be put back after the update evicted it.
+ */
+@Service
+@Slf4j
+public class CustomerNearCache implements ConsumerSeekAware {
+
+    private final CustomerClient customerClient;
+    private final Cache<String, CustomerResponse> cache;
+    // bumped before every invalidation, a lookup only caches what it read if no invalidation ran meanwhile
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CustomerNearCache(CustomerClient customerClient,
+                             MeterRegistry meterRegistry,
+                             @Value("${application.config.customer-cache.maximum-size:10000}") long maximumSize,
+                             @Value("${application.config.customer-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.customerClient = customerClient;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "customer-near-cache");
+    }
+
+    public Optional<CustomerResponse> findCustomerById(String customerId) {
+        var cached = cache.getIfPresent(customerId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long generation = invalidations.get();
+        // unknown customers are not cached, so a customer created right after a failed order is seen at once
+        var customer = customerClient.findCustomerById(customerId);
+        // the check runs under the entry's lock, an invalidation is either seen here or removes the entry after
+        customer.ifPresent(response -> cache.asMap().compute(customerId,
+                (id, existing) -> invalidations.get() == generation ? response : existing));
+        return customer;
+    }
+
+    // every instance reads every partition itself, so each near cache sees every invalidation
+    // without registering a consumer group per instance
+    @KafkaListener(
+            groupId = "order-customer-cache",
+            topicPartitions = @org.springframework.kafka.annotation.TopicPartition(
+                    topic = "customer-topic",
+                    partitions = "#{@partitionFinder.partitions('customer-topic')}"
+            )
+    )
+    public void onCustomerEvent(CustomerEvent event) {
+        log.debug("Evicting customer <{}> after {} event", event.customerId(), event.type());
+        invalidations.incrementAndGet();
+        cache.invalidate(event.customerId());
+    }
+
+    // only events published from now on matter, the cache starts empty
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        callback.seekToEnd(assignments.keySet());
+    }
+}
@@ -0,0 +1,12 @@
+package com.ragheb.ecommerce.exception;
+
+public class OrderInProgressException extends RuntimeException {
+
+    public OrderInProgressException(String msg) {
+        super(msg);
+    }
+
+    public OrderInProgressException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
+}
@@ -1,6 +1,7 @@
 package com.ragheb.ecommerce.handler;
 
 import com.ragheb.ecommerce.exception.BusinessException;
+import com.ragheb.ecommerce.exception.OrderInProgressException;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -20,6 +21,13 @@ public class GlobalExceptionHandler {
                 .body(ex.getMessage());
     }
 
+    @ExceptionHandler(OrderInProgressException.class)
+    public ResponseEntity<String> handle(OrderInProgressException ex) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(ex.getMessage());
+    }
+
     @ExceptionHandler(EntityNotFoundException.class)
     public ResponseEntity<String> handle(EntityNotFoundException ex) {
         return ResponseEntity
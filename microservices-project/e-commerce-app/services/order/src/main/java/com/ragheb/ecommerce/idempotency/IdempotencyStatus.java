@@ -0,0 +1,6 @@
+package com.ragheb.ecommerce.idempotency;
+
+public enum IdempotencyStatus {
+    IN_PROGRESS,
+    COMPLETED
+}
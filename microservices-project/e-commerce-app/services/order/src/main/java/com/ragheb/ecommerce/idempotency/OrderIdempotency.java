@@ -0,0 +1,28 @@
+package com.ragheb.ecommerce.idempotency;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "order_idempotency")
+public class OrderIdempotency {
+
+    @Id
+    private String reference;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private IdempotencyStatus status;
+
+    private Integer orderId;
+
+    @Column(nullable = false)
+    private LocalDateTime claimedAt;
+}
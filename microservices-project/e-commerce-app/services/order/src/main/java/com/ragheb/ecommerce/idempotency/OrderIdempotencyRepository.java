@@ -0,0 +1,45 @@
+package com.ragheb.ecommerce.idempotency;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface OrderIdempotencyRepository extends JpaRepository<OrderIdempotency, String> {
+
+    @Modifying
+    @Query(value = """
+            insert into order_idempotency (reference, status, claimed_at)
+            values (:reference, 'IN_PROGRESS', :now)
+            on conflict (reference) do nothing
+            """, nativeQuery = true)
+    int tryClaim(@Param("reference") String reference, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("""
+            update OrderIdempotency i set i.claimedAt = :now
+            where i.reference = :reference and i.status = com.ragheb.ecommerce.idempotency.IdempotencyStatus.IN_PROGRESS
+              and i.orderId is null and i.claimedAt < :staleBefore
+            """)
+    int takeOverStaleClaim(@Param("reference") String reference,
+                           @Param("now") LocalDateTime now,
+                           @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Modifying
+    @Query("update OrderIdempotency i set i.status = com.ragheb.ecommerce.idempotency.IdempotencyStatus.COMPLETED, i.orderId = :orderId where i.reference = :reference")
+    int complete(@Param("reference") String reference, @Param("orderId") Integer orderId);
+
+    @Modifying
+    @Query("update OrderIdempotency i set i.orderId = :orderId where i.reference = :reference")
+    int attachOrder(@Param("reference") String reference, @Param("orderId") Integer orderId);
+
+    @Modifying
+    @Query("delete from OrderIdempotency i where i.reference = :reference and i.status = com.ragheb.ecommerce.idempotency.IdempotencyStatus.IN_PROGRESS and i.orderId is null")
+    int release(@Param("reference") String reference);
+
+    @Modifying
+    @Query("delete from OrderIdempotency i where i.reference = :reference and i.status = com.ragheb.ecommerce.idempotency.IdempotencyStatus.IN_PROGRESS")
+    int forget(@Param("reference") String reference);
+}
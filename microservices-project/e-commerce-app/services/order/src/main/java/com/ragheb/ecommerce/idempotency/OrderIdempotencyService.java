@@ -0,0 +1,122 @@
+package com.ragheb.ecommerce.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ragheb.ecommerce.exception.OrderInProgressException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Makes order creation replay safe per {@code OrderRequest.reference}. A reference is claimed with a
+ * single insert against its primary key before any side effect runs; a duplicate either replays the
+ * order id of the completed original or is rejected while the original is still running. Once an
+ * order is attached to the claim, the claim no longer expires: it is only completed or forgotten
+ * when the outcome of that order is known.
+ */
+@Service
+@Slf4j
+public class OrderIdempotencyService {
+
+    private final OrderIdempotencyRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration claimTimeout;
+    // completed references seen by this instance, answers most client retries without touching the database
+    private final Cache<String, Integer> completed;
+
+    public OrderIdempotencyService(OrderIdempotencyRepository repository,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${application.config.idempotency.claim-timeout-seconds:60}") long claimTimeoutSeconds,
+                                   @Value("${application.config.idempotency.replay-cache-size:100000}") long replayCacheSize,
+                                   @Value("${application.config.idempotency.replay-cache-ttl-minutes:60}") long replayCacheTtlMinutes) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.claimTimeout = Duration.ofSeconds(claimTimeoutSeconds);
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(replayCacheSize)
+                .expireAfterWrite(Duration.ofMinutes(replayCacheTtlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, "order-idempotency-replay");
+    }
+
+    /**
+     * Claims the reference in its own short transaction, or returns the order id of the original
+     * request. It must run before the caller opens its own transaction, so a request never holds two
+     * pooled connections at once; the caller releases the claim if the order is not placed.
+     */
+    @Transactional(propagation = Propagation.NEVER)
+    public Optional<Integer> claim(String reference) {
+        var replay = completed.getIfPresent(reference);
+        if (replay != null) {
+            return Optional.of(replay);
+        }
+        var original = transactionTemplate.execute(status -> claimOrFindOriginal(reference));
+        if (original != null) {
+            log.info("Replaying order <{}> for duplicate reference <{}>", original, reference);
+            completed.put(reference, original);
+            return Optional.of(original);
+        }
+        return Optional.empty();
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void attachOrder(String reference, Integer orderId) {
+        repository.attachOrder(reference, orderId);
+    }
+
+    /**
+     * Drops the claim of an order that was given up, so the reference can be used again.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void forget(String reference) {
+        repository.forget(reference);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void complete(String reference, Integer orderId) {
+        repository.complete(reference, orderId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                completed.put(reference, orderId);
+            }
+        });
+    }
+
+    private Integer claimOrFindOriginal(String reference) {
+        var now = LocalDateTime.now();
+        if (repository.tryClaim(reference, now) == 1
+                || repository.takeOverStaleClaim(reference, now, now.minus(claimTimeout)) == 1) {
+            return null;
+        }
+        return repository.findById(reference)
+                .filter(existing -> existing.getStatus() == IdempotencyStatus.COMPLETED)
+                .map(OrderIdempotency::getOrderId)
+                .orElseThrow(() -> new OrderInProgressException(
+                        String.format("Order with reference %s is still being processed, retry later", reference)
+                ));
+    }
+
+    @Transactional(propagation = Propagation.NEVER)
+    public void release(String reference) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> repository.release(reference));
+        } catch (RuntimeException ex) {
+            log.warn("Could not release idempotency claim for <{}>, it expires after {}", reference, claimTimeout, ex);
+        }
+    }
+}
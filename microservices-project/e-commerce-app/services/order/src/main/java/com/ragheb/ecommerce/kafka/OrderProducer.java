@@ -1,11 +1,8 @@
 package com.ragheb.ecommerce.kafka;
 
+import com.ragheb.ecommerce.outbox.OutboxService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -13,14 +10,10 @@ import org.springframework.stereotype.Service;
 @Slf4j
 public class OrderProducer {
 
-    private final KafkaTemplate<String, OrderConfirmation> kafkaTemplate;
+    private final OutboxService outboxService;
 
     public void sendOrderConfirmation(OrderConfirmation orderConfirmation) {
-        log.info("Sending order confirmation to customer");
-        Message<OrderConfirmation> message = MessageBuilder
-                .withPayload(orderConfirmation)
-                .setHeader(KafkaHeaders.TOPIC, "order-topic")
-                .build();
-        kafkaTemplate.send(message);
+        log.info("Queueing order confirmation to customer");
+        outboxService.enqueue("order-topic", orderConfirmation.orderReference(), orderConfirmation);
     }
 }
@@ -0,0 +1,106 @@
+package com.ragheb.ecommerce.kafka.serde;
+
+import com.ragheb.ecommerce.avro.EventSchemas;
+import com.ragheb.ecommerce.avro.FileSchemaRegistry;
+import com.ragheb.ecommerce.customer.CustomerResponse;
+import com.ragheb.ecommerce.kafka.OrderConfirmation;
+import com.ragheb.ecommerce.prodcut.PurchaseResponse;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Writes {@link OrderConfirmation} in Avro single-object encoding: a two byte marker, the writer
+ * schema fingerprint and the binary record. Any other payload is still written as JSON.
+ */
+public class OrderConfirmationSerializer implements Serializer<Object> {
+
+    public static final String SCHEMA_REGISTRY_DIR = "schema.registry.dir";
+
+    private static final Schema SCHEMA = EventSchemas.ORDER_CONFIRMATION;
+    private static final Schema PAYMENT_METHOD = FileSchemaRegistry.nonNull(SCHEMA.getField("paymentMethod").schema());
+    private static final Schema CUSTOMER = FileSchemaRegistry.nonNull(SCHEMA.getField("customer").schema());
+    private static final Schema PRODUCT = SCHEMA.getField("products").schema().getElementType();
+
+    private final BinaryMessageEncoder<GenericRecord> encoder = new BinaryMessageEncoder<>(EventSchemas.MODEL, SCHEMA);
+    private final JsonSerializer<Object> json = new JsonSerializer<>();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+        var directory = configs.get(SCHEMA_REGISTRY_DIR);
+        new FileSchemaRegistry(directory == null ? null : Path.of(directory.toString())).register(SCHEMA);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        return data instanceof OrderConfirmation confirmation ? encode(confirmation) : json.serialize(topic, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        return data instanceof OrderConfirmation confirmation ? encode(confirmation) : json.serialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+
+    private byte[] encode(OrderConfirmation confirmation) {
+        var record = new GenericData.Record(SCHEMA);
+        record.put("orderReference", confirmation.orderReference());
+        record.put("totalAmount", EventSchemas.decimal(confirmation.totalAmount(), SCHEMA.getField("totalAmount").schema()));
+        record.put("paymentMethod", confirmation.paymentMethod() == null
+                ? null
+                : new GenericData.EnumSymbol(PAYMENT_METHOD, confirmation.paymentMethod().name()));
+        record.put("customer", customer(confirmation.customer()));
+        var products = new ArrayList<GenericRecord>();
+        if (confirmation.products() != null) {
+            for (PurchaseResponse product : confirmation.products()) {
+                products.add(product(product));
+            }
+        }
+        record.put("products", products);
+        var out = new ByteArrayOutputStream(256);
+        try {
+            encoder.encode(record, out);
+        } catch (IOException ex) {
+            throw new SerializationException("Cannot write order confirmation " + confirmation.orderReference(), ex);
+        }
+        return out.toByteArray();
+    }
+
+    private static GenericRecord customer(CustomerResponse customer) {
+        if (customer == null) {
+            return null;
+        }
+        var record = new GenericData.Record(CUSTOMER);
+        record.put("id", customer.id());
+        record.put("firstname", customer.firstname());
+        record.put("lastname", customer.lastname());
+        record.put("email", customer.email());
+        return record;
+    }
+
+    private static GenericRecord product(PurchaseResponse product) {
+        var record = new GenericData.Record(PRODUCT);
+        record.put("productId", product.productId());
+        record.put("name", product.name());
+        record.put("description", product.description());
+        record.put("price", EventSchemas.decimal(product.price(), PRODUCT.getField("price").schema()));
+        record.put("quantity", product.quantity());
+        return record;
+    }
+}
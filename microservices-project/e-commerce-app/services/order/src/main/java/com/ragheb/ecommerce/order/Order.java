@@ -24,6 +24,8 @@ public class Order {
     @Id
     @GeneratedValue
     private Integer id;
+
+    @Column(unique = true)
     private String reference;
     private BigDecimal totalAmount;
 
@@ -31,6 +33,13 @@ public class Order {
     private PaymentMethod paymentMethod;
     private String customerId;
 
+    // set for orders placed synchronously, null for saga orders and orders placed before it existed
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    // a PENDING order is picked up by the PendingOrderReconciler once this time has passed
+    private LocalDateTime nextAttemptAt;
+
     @OneToMany(mappedBy = "order")
     private List<OrderLine> orderLines;
 
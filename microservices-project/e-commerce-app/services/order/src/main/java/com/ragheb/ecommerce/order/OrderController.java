@@ -1,9 +1,17 @@
 package com.ragheb.ecommerce.order;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+import com.ragheb.ecommerce.saga.OrderSagaService;
+import com.ragheb.ecommerce.saga.OrderStatusResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.List;
 
@@ -12,11 +20,28 @@ import java.util.List;
 @RequiredArgsConstructor
 public class OrderController {
 
+    @Value("${application.config.saga.enabled:false}")
+    private boolean sagaEnabled;
+
     private final OrderService service;
+    private final OrderSagaService sagaService;
 
     @PostMapping
     public ResponseEntity<Integer> createOrder(@RequestBody @Valid OrderRequest request) {
-        return ResponseEntity.ok(service.createOrder(request));
+        if (!sagaEnabled) {
+            return ResponseEntity.ok(service.createOrder(request));
+        }
+        var orderId = service.submitOrder(request);
+        var location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{order-id}/status")
+                .buildAndExpand(orderId)
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(orderId);
+    }
+
+    @GetMapping("/{order-id}/status")
+    public ResponseEntity<OrderStatusResponse> findStatus(@PathVariable("order-id") Integer orderId) {
+        return ResponseEntity.ok(sagaService.findStatus(orderId));
     }
 
     @GetMapping
@@ -24,6 +49,21 @@ public class OrderController {
         return ResponseEntity.ok(service.findAll());
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<OrderPageResponse> findPage(
+            @RequestParam(value = "after", required = false) Integer after,
+            @RequestParam(value = "size", defaultValue = "50") @Positive @Max(500) int size
+    ) {
+        return ResponseEntity.ok(service.findPage(after, size));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(service::streamAll);
+    }
+
     @GetMapping("/{order-id}")
     public ResponseEntity<OrderResponse> findById(@PathVariable("order-id") Integer orderId) {
         return ResponseEntity.ok(service.findById(orderId));
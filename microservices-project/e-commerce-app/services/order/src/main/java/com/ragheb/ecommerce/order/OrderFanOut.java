@@ -0,0 +1,76 @@
+package com.ragheb.ecommerce.order;
+
+import com.ragheb.ecommerce.customer.CustomerNearCache;
+import com.ragheb.ecommerce.customer.CustomerResponse;
+import com.ragheb.ecommerce.exception.BusinessException;
+import com.ragheb.ecommerce.prodcut.ProductClient;
+import com.ragheb.ecommerce.prodcut.PurchaseResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the customer check and the product purchase of an order concurrently. The purchase is
+ * keyed by the order id; if either step fails the caller releases the order, which also makes
+ * the product service reject a purchase of the same order that is still in flight.
+ */
+@Service
+public class OrderFanOut {
+
+    @Value("${application.config.fan-out.customer-timeout-ms:2000}")
+    private long customerTimeoutMs;
+
+    @Value("${application.config.fan-out.purchase-timeout-ms:3000}")
+    private long purchaseTimeoutMs;
+
+    private final CustomerNearCache customerCache;
+    private final ProductClient productClient;
+    private final ThreadPoolTaskExecutor executor;
+
+    public OrderFanOut(CustomerNearCache customerCache,
+                       ProductClient productClient,
+                       @Qualifier("orderFanOutExecutor") ThreadPoolTaskExecutor executor) {
+        this.customerCache = customerCache;
+        this.productClient = productClient;
+        this.executor = executor;
+    }
+
+    public Result checkCustomerAndPurchase(Integer orderId, OrderRequest request) {
+        CompletableFuture<Optional<CustomerResponse>> customerCall = CompletableFuture
+                .supplyAsync(() -> customerCache.findCustomerById(request.customerId()), executor);
+        CompletableFuture<List<PurchaseResponse>> purchaseCall = CompletableFuture
+                .supplyAsync(() -> productClient.purchaseProducts(orderId, request.products()), executor);
+
+        var customer = await(customerCall, customerTimeoutMs, "customer check")
+                .orElseThrow(() -> new BusinessException("Cannot create order:: no customer exists with the provide ID :: "));
+        return new Result(customer, await(purchaseCall, purchaseTimeoutMs, "product purchase"));
+    }
+
+    private <T> T await(CompletableFuture<T> call, long timeoutMs, String step) {
+        try {
+            return call.copy().orTimeout(timeoutMs, TimeUnit.MILLISECONDS).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof TimeoutException) {
+                throw new BusinessException("Cannot create order:: " + step + " timed out after " + timeoutMs + " ms");
+            }
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    public record Result(
+            CustomerResponse customer,
+            List<PurchaseResponse> purchasedProducts
+    ) {
+    }
+}
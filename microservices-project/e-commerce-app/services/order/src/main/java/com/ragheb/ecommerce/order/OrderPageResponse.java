@@ -0,0 +1,9 @@
+package com.ragheb.ecommerce.order;
+
+import java.util.List;
+
+public record OrderPageResponse(
+        List<OrderResponse> orders,
+        Integer nextCursor
+) {
+}
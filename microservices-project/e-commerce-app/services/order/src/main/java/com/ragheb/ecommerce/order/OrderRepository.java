@@ -1,6 +1,40 @@
 package com.ragheb.ecommerce.order;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface OrderRepository extends JpaRepository<Order,Integer> {
+
+    List<Order> findAllByIdGreaterThanOrderById(Integer id, Limit limit);
+
+    @Query("select o from Order o order by o.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<Order> streamAll();
+
+    @Query(value = """
+            select * from customer_order
+            where status = 'PENDING' and next_attempt_at <= :now
+            order by next_attempt_at
+            limit 1
+            for update skip locked
+            """, nativeQuery = true)
+    Optional<Order> lockNextPending(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("""
+            update Order o set o.status = com.ragheb.ecommerce.order.OrderStatus.CONFIRMED, o.nextAttemptAt = null
+            where o.id = :id and o.status = com.ragheb.ecommerce.order.OrderStatus.PENDING
+            """)
+    int confirm(@Param("id") Integer id);
 }
@@ -1,75 +1,241 @@
 package com.ragheb.ecommerce.order;
 
-import com.ragheb.ecommerce.customer.CustomerClient;
+import com.ragheb.ecommerce.customer.CustomerNearCache;
+import com.ragheb.ecommerce.customer.CustomerResponse;
 import com.ragheb.ecommerce.exception.BusinessException;
+import com.ragheb.ecommerce.exception.OrderInProgressException;
+import com.ragheb.ecommerce.idempotency.OrderIdempotencyService;
 import com.ragheb.ecommerce.kafka.OrderConfirmation;
 import com.ragheb.ecommerce.kafka.OrderProducer;
-import com.ragheb.ecommerce.orderline.OrderLineRequest;
 import com.ragheb.ecommerce.orderline.OrderLineService;
 import com.ragheb.ecommerce.payment.PaymentClient;
 import com.ragheb.ecommerce.payment.PaymentRequest;
 import com.ragheb.ecommerce.prodcut.ProductClient;
-import com.ragheb.ecommerce.prodcut.PurchaseRequest;
+import com.ragheb.ecommerce.prodcut.PurchaseResponse;
+import com.ragheb.ecommerce.saga.OrderSagaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import feign.FeignException;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class OrderService {
 
+    @Value("${application.config.fan-out.enabled:false}")
+    private boolean fanOutEnabled;
+
+    @Value("${application.config.pending-orders.retry-after-ms:60000}")
+    private long pendingRetryAfterMs;
+
     private final OrderRepository repository;
-    private final CustomerClient customerClient;
+    private final CustomerNearCache customerCache;
     private final ProductClient productClient;
     private final OrderMapper mapper;
     private final OrderLineService orderLineService;
     private final OrderProducer orderProducer;
     private final PaymentClient paymentClient;
+    private final OrderFanOut orderFanOut;
+    private final OrderIdempotencyService idempotencyService;
+    private final OrderSagaService sagaService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
 
     public Integer createOrder(@Valid OrderRequest request) {
-        // check the customer --> OpenFeign
-        var customer = this.customerClient.findCustomerById(request.customerId())
-                .orElseThrow(() -> new BusinessException("Cannot create order:: no customer exists with the provide ID :: "));
-        // purchase the products -> product-ms (RestTemplate)
-        var purchasedProducts = this.productClient.purchaseProducts(request.products());
-        // persist order
-        var order = this.repository.save(mapper.toOrder(request));
-        // persist order lines
-        for (PurchaseRequest purchaseRequest : request.products()) {
-            this.orderLineService.saveOrderLine(
-                    new OrderLineRequest(
-                            null,
-                            order.getId(),
-                            purchaseRequest.productId(),
-                            purchaseRequest.quantity()
-                    ));
+        return placeOnce(request, () -> placeOrder(request));
+    }
+
+    /**
+     * Places an order synchronously. The order is saved as PENDING first, so every remote call can
+     * be keyed by its id: the product service purchases and releases an order at most once, and the
+     * payment service pays it at most once. When a step fails, the stock is released and the order
+     * dropped; if that release or the payment outcome cannot be confirmed, the order stays PENDING
+     * with the reference still claimed, and the {@link PendingOrderReconciler} finishes it later.
+     */
+    private Integer placeOrder(OrderRequest request) {
+        var orderId = transactionTemplate.execute(status -> {
+            var order = mapper.toOrder(request);
+            order.setStatus(OrderStatus.PENDING);
+            order.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(pendingRetryAfterMs)));
+            var saved = this.repository.save(order);
+            this.orderLineService.saveOrderLines(saved.getId(), request.products());
+            if (request.reference() != null) {
+                // from here on the claim is tied to the order and no longer expires
+                this.idempotencyService.attachOrder(request.reference(), saved.getId());
+            }
+            return saved.getId();
+        });
+        return advance(orderId, request);
+    }
+
+    /**
+     * Runs the remaining steps of a PENDING order again, see {@link #placeOrder}.
+     */
+    public Integer resume(Order order) {
+        var request = new OrderRequest(
+                order.getId(),
+                order.getReference(),
+                order.getTotalAmount(),
+                order.getPaymentMethod(),
+                order.getCustomerId(),
+                this.orderLineService.findPurchases(order.getId())
+        );
+        return advance(order.getId(), request);
+    }
+
+    // the remote calls run outside any transaction, the database is only touched in short transactions
+    private Integer advance(Integer orderId, OrderRequest request) {
+        CustomerResponse customer;
+        List<PurchaseResponse> purchasedProducts;
+        try {
+            if (fanOutEnabled) {
+                // check the customer and purchase the products concurrently
+                var result = this.orderFanOut.checkCustomerAndPurchase(orderId, request);
+                customer = result.customer();
+                purchasedProducts = result.purchasedProducts();
+            } else {
+                // check the customer --> OpenFeign
+                customer = this.customerCache.findCustomerById(request.customerId())
+                        .orElseThrow(() -> new BusinessException("Cannot create order:: no customer exists with the provide ID :: "));
+                // purchase the products -> product-ms (RestTemplate)
+                purchasedProducts = this.productClient.purchaseProducts(orderId, request.products());
+            }
+        } catch (RuntimeException ex) {
+            // whether the purchase went through or not, releasing the order settles the stock
+            throw abandon(orderId, request, ex);
         }
         // start payment process
         var paymentRequest = new PaymentRequest(
                 request.amount(),
                 request.paymentMethod(),
-                order.getId(),
-                order.getReference(),
+                orderId,
+                request.reference(),
                 customer
         );
         // request payment
-        paymentClient.requestOrderPayment(paymentRequest);
-
-        // send the order confirmation --> notification-ms (kafka)
-        orderProducer.sendOrderConfirmation(
-                new OrderConfirmation(
-                        request.reference(),
-                        request.amount(),
-                        request.paymentMethod(),
-                        customer,
-                        purchasedProducts
-                )
-        );
-        return order.getId();
+        try {
+            paymentClient.requestOrderPayment(paymentRequest);
+        } catch (RuntimeException ex) {
+            if (!isRejection(ex)) {
+                // the customer may have been charged, only a repeated request can tell
+                log.warn("Payment outcome of order <{}> is unknown, keeping it pending", orderId, ex);
+                throw new OrderInProgressException(
+                        String.format("Payment of order %s is not confirmed yet, retry later", orderId), ex
+                );
+            }
+            throw abandon(orderId, request, ex);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (this.repository.confirm(orderId) == 0) {
+                // confirmed by the reconciler in the meantime
+                return;
+            }
+            // send the order confirmation --> notification-ms (kafka)
+            orderProducer.sendOrderConfirmation(
+                    new OrderConfirmation(
+                            request.reference(),
+                            request.amount(),
+                            request.paymentMethod(),
+                            customer,
+                            purchasedProducts
+                    )
+            );
+            if (request.reference() != null) {
+                this.idempotencyService.complete(request.reference(), orderId);
+            }
+        });
+        return orderId;
+    }
+
+    // releases the stock and drops the order; if the release fails the order stays pending
+    private RuntimeException abandon(Integer orderId, OrderRequest request, RuntimeException cause) {
+        try {
+            this.productClient.releaseProducts(orderId, request.products());
+        } catch (RuntimeException ex) {
+            log.error("Failed to release products reserved for order <{}>, keeping it pending", orderId, ex);
+            cause.addSuppressed(ex);
+            return new OrderInProgressException(
+                    String.format("Order %s could not be cancelled yet, retry later", orderId), cause
+            );
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            this.orderLineService.deleteOrderLines(orderId);
+            this.repository.deleteById(orderId);
+            if (request.reference() != null) {
+                this.idempotencyService.forget(request.reference());
+            }
+        });
+        return cause;
+    }
+
+    // a 4xx answer or a local business check means the step definitely did not happen
+    private static boolean isRejection(RuntimeException ex) {
+        if (ex instanceof FeignException feignException) {
+            return isClientError(feignException.status());
+        }
+        if (ex instanceof HttpClientErrorException clientError) {
+            return isClientError(clientError.getStatusCode().value());
+        }
+        return ex instanceof BusinessException;
+    }
+
+    // timeouts and throttling are worth another try
+    private static boolean isClientError(int status) {
+        return status >= 400 && status < 500 && status != 408 && status != 429;
+    }
+
+    /**
+     * Persists the order and starts its saga; stock, payment and the confirmation are handled
+     * asynchronously by the saga orchestrator.
+     */
+    public Integer submitOrder(@Valid OrderRequest request) {
+        return placeOnce(request, () -> transactionTemplate.execute(status -> {
+            var order = this.repository.save(mapper.toOrder(request));
+            this.orderLineService.saveOrderLines(order.getId(), request.products());
+            this.sagaService.start(order.getId(), request);
+            if (request.reference() != null) {
+                this.idempotencyService.complete(request.reference(), order.getId());
+            }
+            return order.getId();
+        }));
+    }
+
+    // replays the original order for a retried reference; the claim is taken before any transaction opens
+    private Integer placeOnce(OrderRequest request, Supplier<Integer> placement) {
+        if (request.reference() == null) {
+            return placement.get();
+        }
+        var original = this.idempotencyService.claim(request.reference());
+        if (original.isPresent()) {
+            return original.get();
+        }
+        try {
+            return placement.get();
+        } catch (RuntimeException ex) {
+            this.idempotencyService.release(request.reference());
+            throw ex;
+        }
     }
 
     public List<OrderResponse> findAll() {
@@ -84,4 +250,26 @@ public class OrderService {
                 .map(mapper::fromOrder)
                 .orElseThrow(() -> new EntityNotFoundException("Cannot find order with the provided ID :: " + orderId));
     }
+
+    public OrderPageResponse findPage(Integer after, int size) {
+        var orders = repository.findAllByIdGreaterThanOrderById(after == null ? 0 : after, Limit.of(size))
+                .stream()
+                .map(mapper::fromOrder)
+                .collect(Collectors.toList());
+        var nextCursor = orders.size() < size ? null : orders.get(orders.size() - 1).id();
+        return new OrderPageResponse(orders, nextCursor);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAll(OutputStream out) throws IOException {
+        try (Stream<Order> orders = repository.streamAll()) {
+            var iterator = orders.iterator();
+            while (iterator.hasNext()) {
+                var order = iterator.next();
+                out.write(objectMapper.writeValueAsBytes(mapper.fromOrder(order)));
+                out.write('\n');
+                entityManager.detach(order);
+            }
+        }
+    }
 }
@@ -0,0 +1,6 @@
+package com.ragheb.ecommerce.order;
+
+public enum OrderStatus {
+    PENDING,
+    CONFIRMED
+}
@@ -0,0 +1,57 @@
+package com.ragheb.ecommerce.order;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Finishes synchronously placed orders whose outcome was left open, because the payment answer
+ * was lost or the stock could not be released. Each order is claimed with SKIP LOCKED in a short
+ * transaction that pushes its next attempt out, then its steps are repeated without a transaction.
+ * Every step is keyed by the order id, so repeating one that already went through does no harm.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PendingOrderReconciler {
+
+    @Value("${application.config.pending-orders.retry-after-ms:60000}")
+    private long retryAfterMs;
+
+    @Value("${application.config.pending-orders.batch-size:20}")
+    private int batchSize;
+
+    private final OrderRepository repository;
+    private final OrderService orderService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Scheduled(fixedDelayString = "${application.config.pending-orders.poll-interval-ms:5000}")
+    public void reconcile() {
+        for (int i = 0; i < batchSize; i++) {
+            var order = transactionTemplate.execute(status -> {
+                var now = LocalDateTime.now();
+                return repository.lockNextPending(now)
+                        .map(pending -> {
+                            pending.setNextAttemptAt(now.plus(Duration.ofMillis(retryAfterMs)));
+                            return pending;
+                        })
+                        .orElse(null);
+            });
+            if (order == null) {
+                return;
+            }
+            try {
+                orderService.resume(order);
+                log.info("Reconciled pending order <{}>", order.getId());
+            } catch (RuntimeException ex) {
+                log.warn("Pending order <{}> could not be completed", order.getId(), ex);
+            }
+        }
+    }
+}
@@ -1,9 +1,16 @@
 package com.ragheb.ecommerce.orderline;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface OrderLineRepository extends JpaRepository<OrderLine,Integer> {
     List<OrderLine> findAllByOrderId(Integer orderId);
+
+    @Modifying
+    @Query("delete from OrderLine l where l.order.id = :orderId")
+    int deleteAllByOrderId(@Param("orderId") Integer orderId);
 }
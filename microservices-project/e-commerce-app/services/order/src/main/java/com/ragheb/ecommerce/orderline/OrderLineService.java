@@ -1,7 +1,9 @@
 package com.ragheb.ecommerce.orderline;
 
+import com.ragheb.ecommerce.prodcut.PurchaseRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -19,6 +21,36 @@ public class OrderLineService {
 
     }
 
+    @Transactional
+    public List<Integer> saveOrderLines(Integer orderId, List<PurchaseRequest> requests) {
+        var orderLines = requests
+                .stream()
+                .map(request -> mapper.toOrderLine(
+                        new OrderLineRequest(
+                                null,
+                                orderId,
+                                request.productId(),
+                                request.quantity()
+                        )))
+                .toList();
+        return repository.saveAll(orderLines)
+                .stream()
+                .map(OrderLine::getId)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional
+    public void deleteOrderLines(Integer orderId) {
+        repository.deleteAllByOrderId(orderId);
+    }
+
+    public List<PurchaseRequest> findPurchases(Integer orderId) {
+        return repository.findAllByOrderId(orderId)
+                .stream()
+                .map(orderLine -> new PurchaseRequest(orderLine.getProductId(), orderLine.getQuantity()))
+                .collect(Collectors.toList());
+    }
+
     public List<OrderLineResponse> findAllByOrderId(Integer orderId) {
         return repository.findAllByOrderId(orderId)
                 .stream()
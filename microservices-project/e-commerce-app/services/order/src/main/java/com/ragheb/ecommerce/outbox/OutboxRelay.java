@@ -0,0 +1,105 @@
+package com.ragheb.ecommerce.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the outbox table to Kafka in batches. A batch is claimed with SKIP LOCKED in a short
+ * transaction that leases its rows until {@code locked_until}, so several instances can relay
+ * side by side; the sends are awaited without holding a connection, and a row is only deleted,
+ * in a second short transaction, once the broker acknowledged it. Rows that were not published
+ * are picked up again when their lease runs out.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelay {
+
+    @Value("${application.config.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${application.config.outbox.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    @Value("${application.config.outbox.lease-ms:30000}")
+    private long leaseMs;
+
+    private final OutboxMessageRepository repository;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Scheduled(fixedDelayString = "${application.config.outbox.poll-interval-ms:200}")
+    public void relay() {
+        var batch = transactionTemplate.execute(status -> {
+            var now = LocalDateTime.now();
+            var claimed = repository.lockNextBatch(now, batchSize);
+            claimed.forEach(outboxMessage -> outboxMessage.setLockedUntil(now.plus(Duration.ofMillis(leaseMs))));
+            return claimed;
+        });
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        var sends = new ArrayList<CompletableFuture<SendResult<String, Object>>>();
+        for (OutboxMessage outboxMessage : batch) {
+            sends.add(send(outboxMessage));
+        }
+        kafkaTemplate.flush();
+        // one deadline for the whole batch, the sends are in flight together
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        List<Long> sent = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (sends.get(i) == null) {
+                continue;
+            }
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                sent.add(batch.get(i).getId());
+            } catch (Exception ex) {
+                log.warn("Outbox message <{}> was not published, will retry", batch.get(i).getId(), ex);
+            }
+        }
+        if (!sent.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> repository.deleteAllByIdInBatch(sent));
+        }
+        log.debug("Relayed {} of {} outbox messages", sent.size(), batch.size());
+    }
+
+    private CompletableFuture<SendResult<String, Object>> send(OutboxMessage outboxMessage) {
+        Message<Object> message;
+        try {
+            Object payload = objectMapper.readValue(
+                    outboxMessage.getPayload(),
+                    Class.forName(outboxMessage.getPayloadType())
+            );
+            var builder = MessageBuilder
+                    .withPayload(payload)
+                    .setHeader(KafkaHeaders.TOPIC, outboxMessage.getTopic());
+            if (outboxMessage.getMessageKey() != null) {
+                builder.setHeader(KafkaHeaders.KEY, outboxMessage.getMessageKey());
+            }
+            message = builder.build();
+        } catch (Exception ex) {
+            log.error("Cannot read outbox message <{}>, leaving it in place", outboxMessage.getId(), ex);
+            return null;
+        }
+        return kafkaTemplate.send(message);
+    }
+}
@@ -17,6 +17,9 @@ public class ProductClient {
     @Value("${application.config.product-url}")
     private String productUrl;
 
+    @Value("${application.config.product-internal-url}")
+    private String productInternalUrl;
+
     private final RestTemplate restTemplate;
 
     public List<PurchaseResponse> purchaseProducts(List<PurchaseRequest> requestBody){
@@ -36,4 +39,58 @@ public class ProductClient {
         }
         return responseEntity.getBody();
     }
+
+    public void releaseProducts(List<PurchaseRequest> requestBody) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        HttpEntity<List<PurchaseRequest>> requestEntity = new HttpEntity<>(requestBody, headers);
+        ResponseEntity<Void> responseEntity = restTemplate.exchange(
+                productInternalUrl + "/release",
+                HttpMethod.POST,
+                requestEntity,
+                Void.class
+        );
+        if (responseEntity.getStatusCode().isError()) {
+            throw new BusinessException("An error occurred while releasing products. " + responseEntity.getStatusCode());
+        }
+    }
+
+    /**
+     * Purchases the products of one order at most once, see the product service.
+     */
+    public List<PurchaseResponse> purchaseProducts(Integer orderId, List<PurchaseRequest> requestBody) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        HttpEntity<List<PurchaseRequest>> requestEntity = new HttpEntity<>(requestBody, headers);
+        ParameterizedTypeReference<List<PurchaseResponse>> responseType =
+                new ParameterizedTypeReference<>() {};
+        ResponseEntity<List<PurchaseResponse>> responseEntity = restTemplate.exchange(
+                productInternalUrl + "/orders/" + orderId + "/purchase",
+                HttpMethod.POST,
+                requestEntity,
+                responseType
+        );
+        if (responseEntity.getStatusCode().isError()) {
+            throw new BusinessException("An error occurred while purchasing products. " + responseEntity.getStatusCode());
+        }
+        return responseEntity.getBody();
+    }
+
+    /**
+     * Releases the products of one order at most once, also if they were never purchased.
+     */
+    public void releaseProducts(Integer orderId, List<PurchaseRequest> requestBody) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        HttpEntity<List<PurchaseRequest>> requestEntity = new HttpEntity<>(requestBody, headers);
+        ResponseEntity<Void> responseEntity = restTemplate.exchange(
+                productInternalUrl + "/orders/" + orderId + "/release",
+                HttpMethod.POST,
+                requestEntity,
+                Void.class
+        );
+        if (responseEntity.getStatusCode().isError()) {
+            throw new BusinessException("An error occurred while releasing products. " + responseEntity.getStatusCode());
+        }
+    }
 }
@@ -0,0 +1,54 @@
+package com.ragheb.ecommerce.saga;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@EntityListeners(AuditingEntityListener.class)
+@Table(name = "order_saga")
+public class OrderSaga {
+
+    @Id
+    private Integer orderId;
+
+    private String reference;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SagaStatus status;
+
+    private int attempts;
+    private String failureReason;
+
+    // the saga is not picked up again before this time, null when it can run right away
+    private LocalDateTime nextAttemptAt;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String orderRequest;
+
+    @Column(columnDefinition = "text")
+    private String customer;
+
+    @Column(columnDefinition = "text")
+    private String purchasedProducts;
+
+    @Version
+    private Long version;
+
+    @CreatedDate
+    @Column(updatable = false, nullable = false)
+    private LocalDateTime createdDate;
+
+    @LastModifiedDate
+    private LocalDateTime lastModifiedDate;
+}
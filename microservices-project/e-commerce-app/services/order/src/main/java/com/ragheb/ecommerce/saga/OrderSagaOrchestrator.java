@@ -0,0 +1,193 @@
+package com.ragheb.ecommerce.saga;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.ragheb.ecommerce.customer.CustomerNearCache;
+import com.ragheb.ecommerce.customer.CustomerResponse;
+import com.ragheb.ecommerce.exception.BusinessException;
+import com.ragheb.ecommerce.order.OrderRequest;
+import com.ragheb.ecommerce.outbox.OutboxService;
+import com.ragheb.ecommerce.prodcut.ProductClient;
+import com.ragheb.ecommerce.prodcut.PurchaseResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Advances order sagas that have work to do. STARTED sagas check the customer, purchase the
+ * products and send the payment command through the outbox; COMPENSATING sagas release the
+ * purchased stock again. A saga is claimed with SKIP LOCKED in a short transaction that leases
+ * it until {@code next_attempt_at}, the remote calls run without a transaction, and the outcome
+ * is written in a second transaction that the {@code @Version} column rejects if another
+ * instance took the saga over in the meantime. Purchase and release are idempotent per order in
+ * the product service, so a step that is repeated after a lost response does no harm.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderSagaOrchestrator {
+
+    @Value("${application.config.saga.enabled:false}")
+    private boolean enabled;
+
+    @Value("${application.config.saga.batch-size:50}")
+    private int batchSize;
+
+    @Value("${application.config.saga.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${application.config.saga.lease-ms:30000}")
+    private long leaseMs;
+
+    @Value("${application.config.saga.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    @Value("${application.config.saga.max-backoff-ms:60000}")
+    private long maxBackoffMs;
+
+    private final OrderSagaRepository repository;
+    private final OrderSagaService sagaService;
+    private final CustomerNearCache customerCache;
+    private final ProductClient productClient;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Scheduled(fixedDelayString = "${application.config.saga.poll-interval-ms:200}")
+    public void advance() {
+        if (!enabled) {
+            return;
+        }
+        for (int i = 0; i < batchSize; i++) {
+            var saga = transactionTemplate.execute(status -> repository.lockNextRunnable(LocalDateTime.now())
+                    .map(this::lease)
+                    .orElse(null));
+            if (saga == null) {
+                return;
+            }
+            step(saga);
+        }
+    }
+
+    // keeps other instances away while the step runs, the row lock ends with the transaction
+    private OrderSaga lease(OrderSaga saga) {
+        saga.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(leaseMs)));
+        return saga;
+    }
+
+    private void step(OrderSaga saga) {
+        var request = sagaService.read(saga.getOrderRequest(), new TypeReference<OrderRequest>() {});
+        switch (saga.getStatus()) {
+            case STARTED -> reserveAndRequestPayment(saga, request);
+            case COMPENSATING -> compensate(saga, request);
+            default -> log.warn("Saga of order <{}> is not runnable in state {}", saga.getOrderId(), saga.getStatus());
+        }
+    }
+
+    private void reserveAndRequestPayment(OrderSaga saga, OrderRequest request) {
+        CustomerResponse customer;
+        List<PurchaseResponse> purchasedProducts;
+        try {
+            customer = customerCache.findCustomerById(request.customerId())
+                    .orElseThrow(() -> new BusinessException("Cannot create order:: no customer exists with the provide ID :: "));
+            purchasedProducts = productClient.purchaseProducts(saga.getOrderId(), request.products());
+        } catch (BusinessException | HttpClientErrorException ex) {
+            // an earlier attempt may have reserved stock before its response was lost,
+            // releasing an order that reserved nothing only marks it as released
+            record(saga, rejected -> startCompensation(rejected, ex.getMessage()));
+            return;
+        } catch (RuntimeException ex) {
+            record(saga, failed -> retry(failed, ex));
+            return;
+        }
+        record(saga, reserved -> {
+            reserved.setCustomer(sagaService.write(customer));
+            reserved.setPurchasedProducts(sagaService.write(purchasedProducts));
+            moveTo(reserved, SagaStatus.PAYMENT_REQUESTED);
+            outboxService.enqueue(
+                    "payment-command-topic",
+                    reserved.getReference(),
+                    new PaymentCommand(
+                            reserved.getOrderId(),
+                            reserved.getReference(),
+                            request.amount(),
+                            request.paymentMethod(),
+                            customer
+                    )
+            );
+        });
+    }
+
+    private void compensate(OrderSaga saga, OrderRequest request) {
+        try {
+            log.info("Releasing products reserved for order <{}>", saga.getOrderId());
+            productClient.releaseProducts(saga.getOrderId(), request.products());
+        } catch (RuntimeException ex) {
+            record(saga, failed -> retry(failed, ex));
+            return;
+        }
+        record(saga, released -> moveTo(released, SagaStatus.FAILED));
+    }
+
+    /**
+     * Writes the outcome of a step. The saga was detached when the claiming transaction
+     * committed, so saving it merges with a version check and fails if the lease ran out and
+     * another instance has advanced the saga since.
+     */
+    private void record(OrderSaga saga, Consumer<OrderSaga> outcome) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                outcome.accept(saga);
+                repository.save(saga);
+            });
+        } catch (OptimisticLockingFailureException ex) {
+            log.warn("Saga of order <{}> was advanced by another instance, dropping the outcome of {}",
+                    saga.getOrderId(), saga.getStatus());
+        }
+    }
+
+    private void retry(OrderSaga saga, RuntimeException ex) {
+        saga.setAttempts(saga.getAttempts() + 1);
+        if (saga.getAttempts() < maxAttempts) {
+            long backoff = Math.min(retryBackoffMs << Math.min(saga.getAttempts() - 1, 20), maxBackoffMs);
+            saga.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(backoff)));
+            log.warn("Step {} of order <{}> failed, will retry in {} ms", saga.getStatus(), saga.getOrderId(), backoff, ex);
+            return;
+        }
+        log.error("Step {} of order <{}> failed {} times, giving up", saga.getStatus(), saga.getOrderId(), maxAttempts, ex);
+        if (saga.getStatus() == SagaStatus.STARTED) {
+            // the purchase may have gone through even though no response came back
+            startCompensation(saga, ex.getMessage());
+        } else {
+            fail(saga, "Stock release failed: " + ex.getMessage());
+        }
+    }
+
+    private void startCompensation(OrderSaga saga, String reason) {
+        moveTo(saga, SagaStatus.COMPENSATING);
+        if (saga.getFailureReason() == null) {
+            saga.setFailureReason(reason);
+        }
+    }
+
+    private void fail(OrderSaga saga, String reason) {
+        moveTo(saga, SagaStatus.FAILED);
+        if (saga.getFailureReason() == null) {
+            saga.setFailureReason(reason);
+        }
+    }
+
+    private void moveTo(OrderSaga saga, SagaStatus status) {
+        saga.setStatus(status);
+        saga.setAttempts(0);
+        saga.setNextAttemptAt(null);
+    }
+}
@@ -0,0 +1,21 @@
+package com.ragheb.ecommerce.saga;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface OrderSagaRepository extends JpaRepository<OrderSaga, Integer> {
+
+    @Query(value = """
+            select * from order_saga
+            where status in ('STARTED', 'COMPENSATING')
+              and (next_attempt_at is null or next_attempt_at <= :now)
+            order by last_modified_date
+            limit 1
+            for update skip locked
+            """, nativeQuery = true)
+    Optional<OrderSaga> lockNextRunnable(@Param("now") LocalDateTime now);
+}
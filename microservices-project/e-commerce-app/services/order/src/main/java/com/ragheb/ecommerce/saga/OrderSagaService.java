@@ -0,0 +1,121 @@
+package com.ragheb.ecommerce.saga;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ragheb.ecommerce.customer.CustomerResponse;
+import com.ragheb.ecommerce.kafka.OrderConfirmation;
+import com.ragheb.ecommerce.kafka.OrderProducer;
+import com.ragheb.ecommerce.order.OrderRepository;
+import com.ragheb.ecommerce.order.OrderRequest;
+import com.ragheb.ecommerce.order.OrderStatus;
+import com.ragheb.ecommerce.prodcut.PurchaseResponse;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Keeps the persisted state of each order saga. A saga is started in the same transaction that
+ * writes the order, the remaining steps are run by {@link OrderSagaOrchestrator} and by the
+ * payment replies handled here.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderSagaService {
+
+    private final OrderSagaRepository repository;
+    private final OrderRepository orderRepository;
+    private final OrderProducer orderProducer;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void start(Integer orderId, OrderRequest request) {
+        repository.save(
+                OrderSaga.builder()
+                        .orderId(orderId)
+                        .reference(request.reference())
+                        .status(SagaStatus.STARTED)
+                        .orderRequest(write(request))
+                        .build()
+        );
+    }
+
+    public OrderStatusResponse findStatus(Integer orderId) {
+        var saga = repository.findById(orderId);
+        if (saga.isPresent()) {
+            return new OrderStatusResponse(
+                    orderId,
+                    saga.get().getReference(),
+                    saga.get().getStatus(),
+                    saga.get().getFailureReason()
+            );
+        }
+        // orders placed synchronously have no saga, a pending one is still being placed or reconciled
+        return orderRepository.findById(orderId)
+                .map(order -> new OrderStatusResponse(
+                        orderId,
+                        order.getReference(),
+                        order.getStatus() == OrderStatus.PENDING ? SagaStatus.STARTED : SagaStatus.COMPLETED,
+                        null
+                ))
+                .orElseThrow(() -> new EntityNotFoundException("Cannot find order with the provided ID :: " + orderId));
+    }
+
+    // one shared group, each reply has to advance its saga exactly once
+    @KafkaListener(
+            topics = "payment-reply-topic",
+            groupId = "order-saga",
+            properties = "auto.offset.reset=earliest"
+    )
+    @Transactional
+    public void onPaymentReply(PaymentReply reply) {
+        var saga = repository.findById(reply.orderId()).orElse(null);
+        if (saga == null || saga.getStatus() != SagaStatus.PAYMENT_REQUESTED) {
+            log.info("Ignoring payment reply for order <{}> in state {}", reply.orderId(),
+                    saga == null ? null : saga.getStatus());
+            return;
+        }
+        if (!reply.success()) {
+            log.warn("Payment for order <{}> failed: {}", reply.orderId(), reply.reason());
+            saga.setStatus(SagaStatus.COMPENSATING);
+            saga.setFailureReason(reply.reason());
+            saga.setAttempts(0);
+            return;
+        }
+        var request = read(saga.getOrderRequest(), new TypeReference<OrderRequest>() {});
+        // send the order confirmation --> notification-ms (kafka)
+        orderProducer.sendOrderConfirmation(
+                new OrderConfirmation(
+                        request.reference(),
+                        request.amount(),
+                        request.paymentMethod(),
+                        read(saga.getCustomer(), new TypeReference<CustomerResponse>() {}),
+                        read(saga.getPurchasedProducts(), new TypeReference<List<PurchaseResponse>>() {})
+                )
+        );
+        saga.setStatus(SagaStatus.COMPLETED);
+    }
+
+    String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot serialize saga state", ex);
+        }
+    }
+
+    <T> T read(String value, TypeReference<T> type) {
+        try {
+            return objectMapper.readValue(value, type);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot read saga state", ex);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.ragheb.ecommerce.saga;
+
+public record OrderStatusResponse(
+        Integer orderId,
+        String reference,
+        SagaStatus status,
+        String failureReason
+) {
+}
@@ -0,0 +1,15 @@
+package com.ragheb.ecommerce.saga;
+
+import com.ragheb.ecommerce.customer.CustomerResponse;
+import com.ragheb.ecommerce.order.PaymentMethod;
+
+import java.math.BigDecimal;
+
+public record PaymentCommand(
+        Integer orderId,
+        String orderReference,
+        BigDecimal amount,
+        PaymentMethod paymentMethod,
+        CustomerResponse customer
+) {
+}
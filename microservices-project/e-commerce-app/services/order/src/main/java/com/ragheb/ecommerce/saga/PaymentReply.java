@@ -0,0 +1,10 @@
+package com.ragheb.ecommerce.saga;
+
+public record PaymentReply(
+        Integer orderId,
+        String orderReference,
+        Integer paymentId,
+        boolean success,
+        String reason
+) {
+}
@@ -0,0 +1,9 @@
+package com.ragheb.ecommerce.saga;
+
+public enum SagaStatus {
+    STARTED,
+    PAYMENT_REQUESTED,
+    COMPLETED,
+    COMPENSATING,
+    FAILED
+}
@@ -1,6 +1,8 @@
 package com.ragheb.ecommerce.config;
 
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.TopicBuilder;
@@ -8,10 +10,26 @@ import org.springframework.kafka.config.TopicBuilder;
 @Configuration
 public class KafkaPaymentTopicConfig {
 
+    @Value("${application.config.kafka.partitions:3}")
+    private int partitions;
+
+    @Value("${application.config.kafka.payment-topic.compression-type:producer}")
+    private String compressionType;
+
     @Bean
     public NewTopic paymentTopic() {
         return TopicBuilder
                 .name("payment-topic")
+                .partitions(partitions)
+                .config(TopicConfig.COMPRESSION_TYPE_CONFIG, compressionType)
+                .build();
+    }
+
+    @Bean
+    public NewTopic paymentReplyTopic() {
+        return TopicBuilder
+                .name("payment-reply-topic")
+                .partitions(partitions)
                 .build();
     }
 }
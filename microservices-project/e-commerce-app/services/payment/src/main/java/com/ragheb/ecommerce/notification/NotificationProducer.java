@@ -1,11 +1,8 @@
 package com.ragheb.ecommerce.notification;
 
+import com.ragheb.ecommerce.outbox.OutboxService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -13,14 +10,10 @@ import org.springframework.stereotype.Service;
 @Slf4j
 public class NotificationProducer {
 
-    private final KafkaTemplate<String, PaymentNotificationRequest> kafkaTemplate;
+    private final OutboxService outboxService;
 
     public void sendNotification(PaymentNotificationRequest request) {
-        log.info("Sending notification with body <{}>", request);
-        Message<PaymentNotificationRequest> message = MessageBuilder
-                .withPayload(request)
-                .setHeader(KafkaHeaders.TOPIC, "payment-topic")
-                .build();
-        kafkaTemplate.send(message);
+        log.info("Queueing notification with body <{}>", request);
+        outboxService.enqueue("payment-topic", request.orderReference(), request);
     }
 }
@@ -0,0 +1,74 @@
+package com.ragheb.ecommerce.notification.serde;
+
+import com.ragheb.ecommerce.avro.EventSchemas;
+import com.ragheb.ecommerce.avro.FileSchemaRegistry;
+import com.ragheb.ecommerce.notification.PaymentNotificationRequest;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Writes {@link PaymentNotificationRequest} in Avro single-object encoding: a two byte marker, the
+ * writer schema fingerprint and the binary record. Any other payload is still written as JSON.
+ */
+public class PaymentNotificationSerializer implements Serializer<Object> {
+
+    public static final String SCHEMA_REGISTRY_DIR = "schema.registry.dir";
+
+    private static final Schema SCHEMA = EventSchemas.PAYMENT_CONFIRMATION;
+    private static final Schema PAYMENT_METHOD = FileSchemaRegistry.nonNull(SCHEMA.getField("paymentMethod").schema());
+
+    private final BinaryMessageEncoder<GenericRecord> encoder = new BinaryMessageEncoder<>(EventSchemas.MODEL, SCHEMA);
+    private final JsonSerializer<Object> json = new JsonSerializer<>();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+        var directory = configs.get(SCHEMA_REGISTRY_DIR);
+        new FileSchemaRegistry(directory == null ? null : Path.of(directory.toString())).register(SCHEMA);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        return data instanceof PaymentNotificationRequest request ? encode(request) : json.serialize(topic, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        return data instanceof PaymentNotificationRequest request ? encode(request) : json.serialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+
+    private byte[] encode(PaymentNotificationRequest request) {
+        var record = new GenericData.Record(SCHEMA);
+        record.put("orderReference", request.orderReference());
+        record.put("amount", EventSchemas.decimal(request.amount(), SCHEMA.getField("amount").schema()));
+        record.put("paymentMethod", request.paymentMethod() == null
+                ? null
+                : new GenericData.EnumSymbol(PAYMENT_METHOD, request.paymentMethod().name()));
+        record.put("customerFirstName", request.customerFirstName());
+        record.put("customerLastName", request.customerLastName());
+        record.put("customerEmail", request.customerEmail());
+        var out = new ByteArrayOutputStream(128);
+        try {
+            encoder.encode(record, out);
+        } catch (IOException ex) {
+            throw new SerializationException("Cannot write payment notification " + request.orderReference(), ex);
+        }
+        return out.toByteArray();
+    }
+}
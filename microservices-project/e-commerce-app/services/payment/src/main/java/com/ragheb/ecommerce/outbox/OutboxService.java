@@ -0,0 +1,32 @@
+package com.ragheb.ecommerce.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxMessageRepository repository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String topic, String key, Object payload) {
+        try {
+            repository.save(
+                    OutboxMessage.builder()
+                            .topic(topic)
+                            .messageKey(key)
+                            .payloadType(payload.getClass().getName())
+                            .payload(objectMapper.writeValueAsString(payload))
+                            .build()
+            );
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot serialize outbox payload for topic " + topic, ex);
+        }
+    }
+}
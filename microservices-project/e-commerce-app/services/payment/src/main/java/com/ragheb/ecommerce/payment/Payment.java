@@ -15,9 +15,16 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Builder
 @EntityListeners(AuditingEntityListener.class)
-@Table(name = "payment")
+@Table(
+        name = "payment",
+        // one payment per order, concurrent deliveries of the same command cannot both insert
+        uniqueConstraints = @UniqueConstraint(name = Payment.ORDER_ID_CONSTRAINT, columnNames = "order_id")
+)
 @Entity
 public class Payment {
+
+    static final String ORDER_ID_CONSTRAINT = "uk_payment_order_id";
+
     @Id
     @GeneratedValue
     private Integer id;
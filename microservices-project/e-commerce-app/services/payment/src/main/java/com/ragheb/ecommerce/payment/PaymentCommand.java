@@ -0,0 +1,12 @@
+package com.ragheb.ecommerce.payment;
+
+import java.math.BigDecimal;
+
+public record PaymentCommand(
+        Integer orderId,
+        String orderReference,
+        BigDecimal amount,
+        PaymentMethod paymentMethod,
+        Customer customer
+) {
+}
@@ -0,0 +1,90 @@
+package com.ragheb.ecommerce.payment;
+
+import com.ragheb.ecommerce.outbox.OutboxService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Handles the payment step of the order saga. The payment and its reply are written in one
+ * transaction through the outbox, and a redelivered command for an order that is already paid
+ * only repeats the reply. Two deliveries racing each other, for example after a rebalance, are
+ * stopped by the unique order id of the payment: the loser rolls back and the winner replies.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentCommandConsumer {
+
+    private static final String REPLY_TOPIC = "payment-reply-topic";
+
+    private final PaymentService paymentService;
+    private final PaymentRepository repository;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+
+    @KafkaListener(
+            topics = "payment-command-topic",
+            groupId = "payment-command",
+            properties = "auto.offset.reset=earliest"
+    )
+    public void onPaymentCommand(PaymentCommand command) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> pay(command));
+        } catch (DataIntegrityViolationException ex) {
+            if (!paymentService.isDuplicateOrder(ex)) {
+                throw ex;
+            }
+            log.info("Payment for order <{}> was already processed by a concurrent delivery", command.orderId());
+        }
+    }
+
+    private void pay(PaymentCommand command) {
+        var existing = repository.findFirstByOrderId(command.orderId());
+        if (existing.isPresent()) {
+            reply(command, existing.get().getId(), true, null);
+            return;
+        }
+        var reason = validate(command);
+        if (reason != null) {
+            log.warn("Rejecting payment for order <{}>: {}", command.orderId(), reason);
+            reply(command, null, false, reason);
+            return;
+        }
+        var paymentId = paymentService.createPayment(
+                new PaymentRequest(
+                        null,
+                        command.amount(),
+                        command.paymentMethod(),
+                        command.orderId(),
+                        command.orderReference(),
+                        command.customer()
+                )
+        );
+        reply(command, paymentId, true, null);
+    }
+
+    private String validate(PaymentCommand command) {
+        if (command.customer() == null || command.customer().email() == null) {
+            return "Payment requires a customer with an email";
+        }
+        if (command.amount() == null || command.amount().signum() <= 0) {
+            return "Payment amount should be positive";
+        }
+        if (command.paymentMethod() == null) {
+            return "Payment method should be precised";
+        }
+        return null;
+    }
+
+    private void reply(PaymentCommand command, Integer paymentId, boolean success, String reason) {
+        outboxService.enqueue(
+                REPLY_TOPIC,
+                command.orderReference(),
+                new PaymentReply(command.orderId(), command.orderReference(), paymentId, success, reason)
+        );
+    }
+}
@@ -17,6 +17,6 @@ public class PaymentController {
 
     @PostMapping
     public ResponseEntity<Integer> createPayment(@RequestBody @Valid PaymentRequest request) {
-        return ResponseEntity.ok(service.createPayment(request));
+        return ResponseEntity.ok(service.payOrder(request));
     }
 }
@@ -4,7 +4,12 @@ import com.ragheb.ecommerce.notification.NotificationProducer;
 import com.ragheb.ecommerce.notification.PaymentNotificationRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @RequiredArgsConstructor
@@ -13,7 +18,32 @@ public class PaymentService {
     private final PaymentRepository repository;
     private final PaymentMapper mapper;
     private final NotificationProducer notificationProducer;
+    private final TransactionTemplate transactionTemplate;
 
+    /**
+     * Pays an order at most once. A repeated request for an order that is already paid, also one
+     * that races the first request, returns the existing payment instead of charging again.
+     */
+    @Transactional(propagation = Propagation.NEVER)
+    public Integer payOrder(PaymentRequest request) {
+        if (request.orderId() == null) {
+            return transactionTemplate.execute(status -> createPayment(request));
+        }
+        try {
+            return transactionTemplate.execute(status -> repository.findFirstByOrderId(request.orderId())
+                    .map(Payment::getId)
+                    .orElseGet(() -> createPayment(request)));
+        } catch (DataIntegrityViolationException ex) {
+            if (!isDuplicateOrder(ex)) {
+                throw ex;
+            }
+            return repository.findFirstByOrderId(request.orderId())
+                    .map(Payment::getId)
+                    .orElseThrow(() -> ex);
+        }
+    }
+
+    @Transactional
     public Integer createPayment(PaymentRequest request) {
         var payment = repository.save(mapper.toPayment(request));
         notificationProducer.sendNotification(
@@ -28,4 +58,9 @@ public class PaymentService {
         );
         return payment.getId();
     }
+
+    boolean isDuplicateOrder(DataIntegrityViolationException ex) {
+        return ex.getCause() instanceof ConstraintViolationException violation
+                && Payment.ORDER_ID_CONSTRAINT.equalsIgnoreCase(violation.getConstraintName());
+    }
 }
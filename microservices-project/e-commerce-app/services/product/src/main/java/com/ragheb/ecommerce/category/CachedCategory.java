@@ -0,0 +1,8 @@
+package com.ragheb.ecommerce.category;
+
+public record CachedCategory(
+        Integer id,
+        String name,
+        String description
+) {
+}
@@ -12,6 +12,7 @@ import java.util.List;
 @NoArgsConstructor
 @Builder
 @Entity
+@EntityListeners(CategoryEntityListener.class)
 public class Category {
 
     @Id
@@ -0,0 +1,89 @@
+package com.ragheb.ecommerce.category;
+
+import com.ragheb.ecommerce.kafka.CategoryEvent;
+import com.ragheb.ecommerce.kafka.CategoryEventProducer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * All categories held in memory as an immutable snapshot. Readers only dereference the current
+ * snapshot and never lock; a change replaces the whole snapshot. A category missing from it is
+ * read through from the database. The snapshot is reloaded after a local change commits, when
+ * another instance announces a change on category-topic, and on a fixed interval for changes
+ * made directly in the database, such as migrations.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CategoryCache {
+
+    private final CategoryRepository repository;
+    private final CategoryEventProducer eventProducer;
+
+    private volatile Map<Integer, CachedCategory> snapshot = Map.of();
+
+    @PostConstruct
+    @Scheduled(
+            initialDelayString = "${application.config.category-cache.refresh-interval-ms:300000}",
+            fixedDelayString = "${application.config.category-cache.refresh-interval-ms:300000}"
+    )
+    public synchronized void reload() {
+        snapshot = repository.findAll()
+                .stream()
+                .map(CategoryCache::toCachedCategory)
+                .collect(Collectors.toUnmodifiableMap(CachedCategory::id, category -> category));
+        log.debug("Loaded {} categories", snapshot.size());
+    }
+
+    public CachedCategory get(Integer categoryId) {
+        if (categoryId == null) {
+            return null;
+        }
+        var category = snapshot.get(categoryId);
+        return category != null ? category : readThrough(categoryId);
+    }
+
+    private synchronized CachedCategory readThrough(Integer categoryId) {
+        var category = snapshot.get(categoryId);
+        if (category != null) {
+            return category;
+        }
+        category = repository.findById(categoryId).map(CategoryCache::toCachedCategory).orElse(null);
+        if (category != null) {
+            var next = new HashMap<>(snapshot);
+            next.put(categoryId, category);
+            snapshot = Map.copyOf(next);
+        }
+        return category;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLocalChange(CategoryChangedEvent event) {
+        reload();
+        eventProducer.sendCategoryEvent(event.categoryId());
+    }
+
+    // every instance uses its own group so each cache sees every change
+    @KafkaListener(
+            topics = "category-topic",
+            groupId = "product-category-cache-${random.uuid}",
+            properties = "auto.offset.reset=latest"
+    )
+    public void onRemoteChange(CategoryEvent event) {
+        log.debug("Reloading categories after change of <{}>", event.categoryId());
+        reload();
+    }
+
+    private static CachedCategory toCachedCategory(Category category) {
+        return new CachedCategory(category.getId(), category.getName(), category.getDescription());
+    }
+}
@@ -0,0 +1,6 @@
+package com.ragheb.ecommerce.category;
+
+public record CategoryChangedEvent(
+        Integer categoryId
+) {
+}
@@ -0,0 +1,6 @@
+package com.ragheb.ecommerce.category;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface CategoryRepository extends JpaRepository<Category, Integer> {
+}
@@ -0,0 +1,65 @@
+package com.ragheb.ecommerce.coalescing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical reads: the first caller for a key runs the load, every caller
+ * arriving while it runs, or within the coalescing window after it finished, gets the same
+ * result. Failed loads are not shared with later callers.
+ */
+@Component
+public class SingleFlight {
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long windowMs;
+    private final Map<List<Object>, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+
+    public SingleFlight(MeterRegistry meterRegistry,
+                        @Value("${application.config.coalescing.enabled:true}") boolean enabled,
+                        @Value("${application.config.coalescing.window-ms:20}") long windowMs) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.windowMs = windowMs;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String name, Object key, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        var flightKey = List.of(name, key);
+        var flight = new CompletableFuture<Object>();
+        var existing = flights.putIfAbsent(flightKey, flight);
+        if (existing != null) {
+            meterRegistry.counter("product.coalescing.shared", "name", name).increment();
+            try {
+                return (T) existing.join();
+            } catch (CompletionException ex) {
+                throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+            }
+        }
+        meterRegistry.counter("product.coalescing.loads", "name", name).increment();
+        try {
+            T value = loader.get();
+            flight.complete(value);
+            CompletableFuture.delayedExecutor(windowMs, TimeUnit.MILLISECONDS)
+                    .execute(() -> flights.remove(flightKey, flight));
+            return value;
+        } catch (RuntimeException | Error ex) {
+            flights.remove(flightKey, flight);
+            flight.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.ragheb.ecommerce.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+public class KafkaProductTopicConfig {
+
+    @Bean
+    public NewTopic productTopic() {
+        return TopicBuilder
+                .name("product-topic")
+                .build();
+    }
+
+    @Bean
+    public NewTopic categoryTopic() {
+        return TopicBuilder
+                .name("category-topic")
+                .build();
+    }
+}
@@ -0,0 +1,253 @@
+package com.ragheb.ecommerce.inventory;
+
+import com.ragheb.ecommerce.exception.ProductPurchaseException;
+import com.ragheb.ecommerce.product.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Optional in-memory inventory for hot products. While enabled, the striped counters are the
+ * source of truth for the configured products: purchases decrement them without touching
+ * Postgres, and the net deltas are written behind on a fixed interval. Every delta is journaled
+ * locally and forced to disk before the reservation is acknowledged, so a restart rebuilds the
+ * counters from the database plus the unflushed journal. Each journal checkpoints under its own
+ * id, so instances with their own journals do not overwrite each other's sequence.
+ */
+@Service
+@Slf4j
+public class InventoryCache {
+
+    // quantities are doubles in the API, the counters work on thousandths of a unit
+    private static final double SCALE = 1000d;
+
+    private static final String APPLY_DELTA_SQL =
+            "update product set available_quantity = available_quantity + ? where id = ?";
+    private static final String READ_CHECKPOINT_SQL =
+            "select coalesce(max(last_sequence), 0) from inventory_journal_checkpoint where journal_id = ?";
+    private static final String WRITE_CHECKPOINT_SQL = """
+            insert into inventory_journal_checkpoint (journal_id, last_sequence) values (?, ?)
+            on conflict (journal_id) do update set last_sequence = excluded.last_sequence
+            """;
+
+    @Value("${application.config.inventory-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${application.config.inventory-cache.hot-products:}")
+    private Set<Integer> hotProducts;
+
+    @Value("${application.config.inventory-cache.stripes:8}")
+    private int stripes;
+
+    @Value("${application.config.inventory-cache.journal-dir:${java.io.tmpdir}/product-inventory-journal}")
+    private Path journalDirectory;
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Integer, StripedStockCounter> counters = new ConcurrentHashMap<>();
+    // guarded by the journal, so a flush snapshot always matches a journal sequence
+    private final Map<Integer, Long> pendingDeltas = new HashMap<>();
+    private InventoryJournal journal;
+    private String journalId;
+
+    public InventoryCache(ProductRepository productRepository,
+                          JdbcTemplate jdbcTemplate,
+                          TransactionTemplate transactionTemplate) {
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    void recover() {
+        if (!enabled) {
+            return;
+        }
+        journal = new InventoryJournal(journalDirectory);
+        journalId = journal.id();
+        Long checkpoint = jdbcTemplate.queryForObject(READ_CHECKPOINT_SQL, Long.class, journalId);
+        var replayed = new HashMap<Integer, Long>();
+        for (InventoryJournal.Entry entry : journal.recover(checkpoint == null ? 0 : checkpoint)) {
+            replayed.merge(entry.productId(), entry.delta(), Long::sum);
+        }
+        // every unflushed delta is written behind, also for products no longer configured as hot
+        replayed.forEach((productId, delta) -> {
+            if (delta != 0) {
+                pendingDeltas.put(productId, delta);
+            }
+        });
+        for (var product : productRepository.findAllById(hotProducts)) {
+            long fromDatabase = Math.round(product.getAvailableQuantity() * SCALE);
+            long unflushed = replayed.getOrDefault(product.getId(), 0L);
+            counters.put(product.getId(), new StripedStockCounter(stripes, fromDatabase + unflushed));
+        }
+        log.info("Inventory cache serving {} hot products, replayed {} unflushed deltas of journal {}",
+                counters.size(), replayed.size(), journalId);
+        flush();
+    }
+
+    public boolean isHot(Integer productId) {
+        return enabled && counters.containsKey(productId);
+    }
+
+    /**
+     * Removes the hot products from the given quantities and returns them.
+     */
+    public SortedMap<Integer, Double> extractHot(SortedMap<Integer, Double> quantities) {
+        var hot = new TreeMap<Integer, Double>();
+        if (!enabled) {
+            return hot;
+        }
+        quantities.entrySet().removeIf(item -> {
+            if (counters.containsKey(item.getKey())) {
+                hot.put(item.getKey(), item.getValue());
+                return true;
+            }
+            return false;
+        });
+        return hot;
+    }
+
+    /**
+     * Reserves all given hot products or none of them. When called inside a transaction the
+     * reservation is handed back if that transaction does not commit.
+     */
+    public void reserve(SortedMap<Integer, Double> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        var reserved = new TreeMap<Integer, Double>();
+        List<Integer> shortItems = new ArrayList<>();
+        long lastSequence = 0;
+        for (var item : quantities.entrySet()) {
+            long amount = Math.round(item.getValue() * SCALE);
+            if (counters.get(item.getKey()).tryDecrement(amount)) {
+                lastSequence = record(item.getKey(), -amount);
+                reserved.put(item.getKey(), item.getValue());
+            } else {
+                shortItems.add(item.getKey());
+            }
+        }
+        if (!shortItems.isEmpty()) {
+            release(reserved);
+            throw new ProductPurchaseException(
+                    String.format("Products %s do not have enough quantity", shortItems)
+            );
+        }
+        // the purchase is only acknowledged once its deltas survive a crash
+        journal.sync(lastSequence);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        release(reserved);
+                    }
+                }
+            });
+        }
+    }
+
+    public void release(SortedMap<Integer, Double> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        long lastSequence = 0;
+        for (var item : quantities.entrySet()) {
+            long amount = Math.round(item.getValue() * SCALE);
+            counters.get(item.getKey()).add(amount);
+            lastSequence = record(item.getKey(), amount);
+        }
+        journal.sync(lastSequence);
+    }
+
+    @Scheduled(fixedDelayString = "${application.config.inventory-cache.flush-interval-ms:500}")
+    public synchronized void flush() {
+        if (!enabled) {
+            return;
+        }
+        Map<Integer, Long> deltas;
+        long checkpoint;
+        synchronized (journal) {
+            if (pendingDeltas.isEmpty()) {
+                return;
+            }
+            deltas = new TreeMap<>(pendingDeltas);
+            pendingDeltas.clear();
+            checkpoint = journal.rotate();
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                writeDeltas(deltas);
+                jdbcTemplate.update(WRITE_CHECKPOINT_SQL, journalId, checkpoint);
+            });
+        } catch (RuntimeException ex) {
+            log.warn("Could not write behind {} inventory deltas, retrying on the next flush", deltas.size(), ex);
+            synchronized (journal) {
+                deltas.forEach((productId, delta) -> pendingDeltas.merge(productId, delta, Long::sum));
+            }
+            return;
+        }
+        // the deltas are committed, a failed purge only leaves files the checkpoint already skips
+        try {
+            journal.purgeClosedFiles();
+        } catch (RuntimeException ex) {
+            log.warn("Could not purge flushed inventory journal files, retrying on the next flush", ex);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        flush();
+        journal.close();
+    }
+
+    private long record(Integer productId, long delta) {
+        synchronized (journal) {
+            long sequence = journal.append(productId, delta);
+            pendingDeltas.merge(productId, delta, Long::sum);
+            return sequence;
+        }
+    }
+
+    private void writeDeltas(Map<Integer, Long> deltas) {
+        var items = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setDouble(1, items.get(i).getValue() / SCALE);
+                ps.setInt(2, items.get(i).getKey());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return items.size();
+            }
+        });
+    }
+}
@@ -0,0 +1,189 @@
+package com.ragheb.ecommerce.inventory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of stock deltas that have not been flushed to the database yet.
+ * Every record carries a sequence number; records up to the checkpoint stored next to the
+ * stock in Postgres are already persisted and are skipped on replay. Each journal directory has
+ * its own id, kept in a file next to the records, and its checkpoint is stored under that id.
+ */
+final class InventoryJournal implements Closeable {
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+    private static final String ID_FILE = "journal.id";
+    // journals from before the id file existed share the one checkpoint they always used
+    private static final String LEGACY_ID = "legacy";
+
+    private final Path directory;
+    private FileChannel channel;
+    private Path currentFile;
+    private long sequence;
+    private long syncedSequence;
+
+    InventoryJournal(Path directory) {
+        this.directory = directory;
+    }
+
+    synchronized String id() {
+        var idFile = directory.resolve(ID_FILE);
+        try {
+            Files.createDirectories(directory);
+            if (Files.exists(idFile)) {
+                return Files.readString(idFile, StandardCharsets.UTF_8).trim();
+            }
+            var id = journalFiles().isEmpty() ? UUID.randomUUID().toString() : LEGACY_ID;
+            Files.writeString(idFile, id, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW, StandardOpenOption.SYNC);
+            return id;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read the id of inventory journal " + directory, ex);
+        }
+    }
+
+    synchronized List<Entry> recover(long checkpoint) {
+        var entries = new ArrayList<Entry>();
+        sequence = checkpoint;
+        try {
+            Files.createDirectories(directory);
+            for (Path file : journalFiles()) {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    var entry = parse(line);
+                    if (entry == null) {
+                        // torn write from a crash in the middle of an append
+                        continue;
+                    }
+                    if (entry.sequence() > checkpoint) {
+                        entries.add(entry);
+                    }
+                    sequence = Math.max(sequence, entry.sequence());
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot replay inventory journal in " + directory, ex);
+        }
+        syncedSequence = sequence;
+        open();
+        return entries;
+    }
+
+    synchronized long append(int productId, long delta) {
+        long next = ++sequence;
+        var line = next + "," + productId + "," + delta + "\n";
+        try {
+            var buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot append to inventory journal " + currentFile, ex);
+        }
+        return next;
+    }
+
+    /**
+     * Forces the records up to the given sequence to disk. A caller whose records were already
+     * forced by another caller returns right away.
+     */
+    synchronized void sync(long upTo) {
+        if (upTo <= syncedSequence) {
+            return;
+        }
+        try {
+            channel.force(false);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot sync inventory journal " + currentFile, ex);
+        }
+        syncedSequence = sequence;
+    }
+
+    /**
+     * Starts a new journal file and returns the last sequence written to the previous ones.
+     */
+    synchronized long rotate() {
+        closeChannel();
+        syncedSequence = sequence;
+        open();
+        return sequence;
+    }
+
+    /**
+     * Deletes every journal file except the one currently written to. Only call this once
+     * the sequence returned by the last {@link #rotate()} has been checkpointed.
+     */
+    synchronized void purgeClosedFiles() {
+        try {
+            for (Path file : journalFiles()) {
+                if (!file.equals(currentFile)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot purge inventory journal in " + directory, ex);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closeChannel();
+    }
+
+    private void open() {
+        currentFile = directory.resolve(PREFIX + String.format("%020d", sequence + 1) + SUFFIX);
+        try {
+            channel = FileChannel.open(currentFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open inventory journal " + currentFile, ex);
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(true);
+            channel.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot close inventory journal " + currentFile, ex);
+        } finally {
+            channel = null;
+        }
+    }
+
+    private static Entry parse(String line) {
+        var parts = line.split(",");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            return new Entry(Long.parseLong(parts[0]), Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private List<Path> journalFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> file.getFileName().toString().startsWith(PREFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    record Entry(long sequence, int productId, long delta) {
+    }
+}
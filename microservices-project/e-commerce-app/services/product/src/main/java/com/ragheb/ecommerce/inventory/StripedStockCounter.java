@@ -0,0 +1,68 @@
+package com.ragheb.ecommerce.inventory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Available stock of one product split over several cells, each on its own cache line.
+ * Buyers decrement a random cell with CAS and only fall back to a locked consolidation
+ * when no single cell holds enough stock.
+ */
+final class StripedStockCounter {
+
+    // 8 longs per 64 byte cache line, so neighbouring cells never share a line
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells;
+    private final int stripes;
+
+    StripedStockCounter(int stripes, long initial) {
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PADDING);
+        distribute(initial);
+    }
+
+    boolean tryDecrement(long amount) {
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        for (int n = 0; n < stripes; n++) {
+            int index = ((start + n) % stripes) * PADDING;
+            long current;
+            while ((current = cells.get(index)) >= amount) {
+                if (cells.compareAndSet(index, current, current - amount)) {
+                    return true;
+                }
+            }
+        }
+        return tryDecrementConsolidated(amount);
+    }
+
+    void add(long amount) {
+        cells.addAndGet(ThreadLocalRandom.current().nextInt(stripes) * PADDING, amount);
+    }
+
+    long sum() {
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.get(i * PADDING);
+        }
+        return total;
+    }
+
+    private synchronized boolean tryDecrementConsolidated(long amount) {
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.getAndSet(i * PADDING, 0);
+        }
+        boolean reserved = total >= amount;
+        distribute(reserved ? total - amount : total);
+        return reserved;
+    }
+
+    private void distribute(long total) {
+        long share = total / stripes;
+        long remainder = total % stripes;
+        for (int i = 0; i < stripes; i++) {
+            cells.addAndGet(i * PADDING, share + (i < remainder ? 1 : 0));
+        }
+    }
+}
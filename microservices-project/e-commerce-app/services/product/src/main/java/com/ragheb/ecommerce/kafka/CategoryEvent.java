@@ -0,0 +1,6 @@
+package com.ragheb.ecommerce.kafka;
+
+public record CategoryEvent(
+        Integer categoryId
+) {
+}
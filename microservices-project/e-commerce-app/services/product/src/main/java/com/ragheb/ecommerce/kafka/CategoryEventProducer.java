@@ -0,0 +1,26 @@
+package com.ragheb.ecommerce.kafka;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CategoryEventProducer {
+
+    private final KafkaTemplate<String, CategoryEvent> kafkaTemplate;
+
+    public void sendCategoryEvent(Integer categoryId) {
+        log.debug("Sending category change event for <{}>", categoryId);
+        Message<CategoryEvent> message = MessageBuilder
+                .withPayload(new CategoryEvent(categoryId))
+                .setHeader(KafkaHeaders.TOPIC, "category-topic")
+                .build();
+        kafkaTemplate.send(message);
+    }
+}
@@ -0,0 +1,9 @@
+package com.ragheb.ecommerce.kafka;
+
+import java.util.List;
+
+public record ProductEvent(
+        List<Integer> productIds,
+        ProductEventType type
+) {
+}
@@ -0,0 +1,46 @@
+package com.ragheb.ecommerce.kafka;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductEventProducer {
+
+    private final KafkaTemplate<String, ProductEvent> kafkaTemplate;
+
+    public void sendProductEvent(Collection<Integer> productIds, ProductEventType type) {
+        var event = new ProductEvent(List.copyOf(productIds), type);
+        // readers must not be told about a change that is rolled back afterwards
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(event);
+                }
+            });
+        } else {
+            send(event);
+        }
+    }
+
+    private void send(ProductEvent event) {
+        log.debug("Sending product {} event for <{}>", event.type(), event.productIds());
+        Message<ProductEvent> message = MessageBuilder
+                .withPayload(event)
+                .setHeader(KafkaHeaders.TOPIC, "product-topic")
+                .build();
+        kafkaTemplate.send(message);
+    }
+}
@@ -0,0 +1,6 @@
+package com.ragheb.ecommerce.kafka;
+
+public enum ProductEventType {
+    CREATED,
+    STOCK_CHANGED
+}
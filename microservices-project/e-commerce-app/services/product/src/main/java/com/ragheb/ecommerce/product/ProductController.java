@@ -2,8 +2,12 @@ package com.ragheb.ecommerce.product;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -26,6 +30,32 @@ public class ProductController {
         return ResponseEntity.ok(service.purchaseProducts(request));
     }
 
+    @PostMapping("/release")
+    public ResponseEntity<Void> releaseProducts(
+            @RequestBody List<ProductPurchaseRequest> request
+    ) {
+        service.releaseProducts(request);
+        return ResponseEntity.accepted().build();
+    }
+
+    // used by the order saga, repeating a call for the same order has no further effect
+    @PostMapping("/orders/{order-id}/purchase")
+    public ResponseEntity<List<ProductPurchaseResponse>> purchaseOrderProducts(
+            @PathVariable("order-id") Integer orderId,
+            @RequestBody List<ProductPurchaseRequest> request
+    ) {
+        return ResponseEntity.ok(service.purchaseProducts(orderId, request));
+    }
+
+    @PostMapping("/orders/{order-id}/release")
+    public ResponseEntity<Void> releaseOrderProducts(
+            @PathVariable("order-id") Integer orderId,
+            @RequestBody List<ProductPurchaseRequest> request
+    ) {
+        service.releaseProducts(orderId, request);
+        return ResponseEntity.accepted().build();
+    }
+
     @GetMapping("/{product-id}")
     public ResponseEntity<ProductResponse> findById(@PathVariable("product-id") Integer productId) {
         return ResponseEntity.ok(service.findById(productId));
@@ -35,4 +65,19 @@ public class ProductController {
     public ResponseEntity<List<ProductResponse>> findAll() {
         return ResponseEntity.ok(service.findAll());
     }
+
+    @GetMapping("/page")
+    public ResponseEntity<ProductPageResponse> findPage(
+            @RequestParam(value = "after", required = false) Integer after,
+            @RequestParam(value = "size", defaultValue = "50") @Positive @Max(500) int size
+    ) {
+        return ResponseEntity.ok(service.findPage(after, size));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(service::streamAll);
+    }
 }
@@ -1,10 +1,17 @@
 package com.ragheb.ecommerce.product;
 
+import com.ragheb.ecommerce.category.CachedCategory;
 import com.ragheb.ecommerce.category.Category;
+import com.ragheb.ecommerce.category.CategoryCache;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 @Service
+@RequiredArgsConstructor
 public class ProductMapper {
+
+    private final CategoryCache categoryCache;
+
     public Product toProduct(ProductRequest request) {
         return Product.builder()
                 .id(request.id())
@@ -21,15 +28,29 @@ public class ProductMapper {
     }
 
     public ProductResponse toProductResponse(Product product) {
-        return new ProductResponse(
+        // reading the id of the lazy category does not load it
+        var categoryId = product.getCategory() == null ? null : product.getCategory().getId();
+        return toProductResponse(new ProductRow(
                 product.getId(),
                 product.getName(),
                 product.getDescription(),
                 product.getAvailableQuantity(),
                 product.getPrice(),
-                product.getCategory().getId(),
-                product.getCategory().getName(),
-                product.getCategory().getDescription()
+                categoryId
+        ));
+    }
+
+    public ProductResponse toProductResponse(ProductRow row) {
+        CachedCategory category = categoryCache.get(row.categoryId());
+        return new ProductResponse(
+                row.id(),
+                row.name(),
+                row.description(),
+                row.availableQuantity(),
+                row.price(),
+                row.categoryId(),
+                category == null ? null : category.name(),
+                category == null ? null : category.description()
         );
     }
 
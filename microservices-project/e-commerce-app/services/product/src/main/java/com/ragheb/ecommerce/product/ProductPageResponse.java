@@ -0,0 +1,9 @@
+package com.ragheb.ecommerce.product;
+
+import java.util.List;
+
+public record ProductPageResponse(
+        List<ProductResponse> products,
+        Integer nextCursor
+) {
+}
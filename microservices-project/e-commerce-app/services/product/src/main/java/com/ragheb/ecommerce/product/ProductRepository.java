@@ -1,9 +1,39 @@
 package com.ragheb.ecommerce.product;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ProductRepository extends JpaRepository<Product,Integer> {
+
+    // the listing reads below select only product columns, categories come from CategoryCache
+    String SELECT_ROW = """
+            select new com.ragheb.ecommerce.product.ProductRow(
+                p.id, p.name, p.description, p.availableQuantity, p.price, p.category.id
+            )
+            from Product p
+            """;
+
     List<Product> findAllByIdInOrderById(List<Integer> productIds);
+
+    @Query(SELECT_ROW + "where p.id = :id")
+    Optional<ProductRow> findRowById(@Param("id") Integer id);
+
+    @Query(SELECT_ROW + "order by p.id")
+    List<ProductRow> findAllRows();
+
+    @Query(SELECT_ROW + "where p.id > :after order by p.id")
+    List<ProductRow> findRowsAfter(@Param("after") Integer after, Limit limit);
+
+    @Query(SELECT_ROW + "order by p.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<ProductRow> streamAllRows();
 }
@@ -0,0 +1,13 @@
+package com.ragheb.ecommerce.product;
+
+import java.math.BigDecimal;
+
+public record ProductRow(
+        Integer id,
+        String name,
+        String description,
+        double availableQuantity,
+        BigDecimal price,
+        Integer categoryId
+) {
+}
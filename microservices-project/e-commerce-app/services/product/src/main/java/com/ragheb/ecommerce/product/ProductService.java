@@ -1,14 +1,30 @@
 package com.ragheb.ecommerce.product;
 
+import com.ragheb.ecommerce.coalescing.SingleFlight;
 import com.ragheb.ecommerce.exception.ProductPurchaseException;
+import com.ragheb.ecommerce.inventory.InventoryCache;
+import com.ragheb.ecommerce.kafka.ProductEventProducer;
+import com.ragheb.ecommerce.kafka.ProductEventType;
+import com.ragheb.ecommerce.reservation.OrderStockLedger;
+import com.ragheb.ecommerce.reservation.StockReservationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -16,52 +32,152 @@ public class ProductService {
 
     private final ProductRepository repository;
     private final ProductMapper mapper;
+    private final StockReservationService reservationService;
+    private final OrderStockLedger orderStockLedger;
+    private final InventoryCache inventoryCache;
+    private final ProductEventProducer eventProducer;
+    private final SingleFlight singleFlight;
+    private final ObjectMapper objectMapper;
 
     public Integer createProduct(ProductRequest request) {
         var product = mapper.toProduct(request);
-        return repository.save(product).getId();
+        var productId = repository.save(product).getId();
+        eventProducer.sendProductEvent(List.of(productId), ProductEventType.CREATED);
+        return productId;
     }
 
+    @Transactional
     public List<ProductPurchaseResponse> purchaseProducts(List<ProductPurchaseRequest> request) {
-        var productIds = request
+        var quantities = toQuantities(request);
+        var storedProducts = findAllExisting(quantities);
+        reserve(quantities, storedProducts);
+        return toPurchaseResponses(request, storedProducts);
+    }
+
+    /**
+     * Same as {@link #purchaseProducts(List)} but at most once per order: repeating the call returns
+     * the purchase without reserving the stock again.
+     */
+    @Transactional
+    public List<ProductPurchaseResponse> purchaseProducts(Integer orderId, List<ProductPurchaseRequest> request) {
+        var quantities = toQuantities(request);
+        var storedProducts = findAllExisting(quantities);
+        if (orderStockLedger.claimPurchase(orderId)) {
+            reserve(quantities, storedProducts);
+        }
+        return toPurchaseResponses(request, storedProducts);
+    }
+
+    private void reserve(SortedMap<Integer, Double> quantities, Map<Integer, Product> storedProducts) {
+        // hot products are removed from the quantities below, but their stock changes as well
+        var changedIds = List.copyOf(quantities.keySet());
+        inventoryCache.reserve(inventoryCache.extractHot(quantities));
+        if (!quantities.isEmpty()) {
+            reservationService.reserve(
+                    quantities,
+                    storedProducts.values()
+                            .stream()
+                            .collect(Collectors.toMap(Product::getId, Product::getAvailableQuantity))
+            );
+        }
+        eventProducer.sendProductEvent(changedIds, ProductEventType.STOCK_CHANGED);
+    }
+
+    private List<ProductPurchaseResponse> toPurchaseResponses(
+            List<ProductPurchaseRequest> request,
+            Map<Integer, Product> storedProducts
+    ) {
+        return request
                 .stream()
-                .map(ProductPurchaseRequest::productId)
+                .sorted(Comparator.comparing(ProductPurchaseRequest::productId))
+                .map(productRequest -> mapper.toProductPurchaseResponse(
+                        storedProducts.get(productRequest.productId()),
+                        productRequest.quantity()
+                ))
                 .collect(Collectors.toList());
-        var storedProducts = repository.findAllByIdInOrderById(productIds);
-        if (productIds.size() != storedProducts.size()) {
-            throw new ProductPurchaseException("Some products does not exist");
+    }
+
+    @Transactional
+    public void releaseProducts(List<ProductPurchaseRequest> request) {
+        var quantities = toQuantities(request);
+        findAllExisting(quantities);
+        release(quantities);
+    }
+
+    /**
+     * Gives back the stock of an order purchased with {@link #purchaseProducts(Integer, List)}.
+     * Releasing an order twice, or one whose purchase never went through, changes nothing.
+     */
+    @Transactional
+    public void releaseProducts(Integer orderId, List<ProductPurchaseRequest> request) {
+        var quantities = toQuantities(request);
+        findAllExisting(quantities);
+        if (orderStockLedger.claimRelease(orderId)) {
+            release(quantities);
+        }
+    }
+
+    private void release(SortedMap<Integer, Double> quantities) {
+        var changedIds = List.copyOf(quantities.keySet());
+        inventoryCache.release(inventoryCache.extractHot(quantities));
+        if (!quantities.isEmpty()) {
+            reservationService.release(quantities);
         }
-        var storedRequest = request
+        eventProducer.sendProductEvent(changedIds, ProductEventType.STOCK_CHANGED);
+    }
+
+    private SortedMap<Integer, Double> toQuantities(List<ProductPurchaseRequest> request) {
+        return request
                 .stream()
-                .sorted(Comparator.comparing(ProductPurchaseRequest::productId))
-                .toList();
-        var purchaseProducts = new ArrayList<ProductPurchaseResponse>();
-        for (int i = 0; i < storedProducts.size(); i++) {
-            var product = storedProducts.get(i);
-            var productRequest = storedRequest.get(i);
-            if (product.getAvailableQuantity() < productRequest.quantity()) {
-                throw new ProductPurchaseException(
-                        String.format("Product %s does not have enough quantity", product.getId())
-                );
-            }
-            var newAvailableQuantity = product.getAvailableQuantity() - productRequest.quantity();
-            product.setAvailableQuantity(newAvailableQuantity);
-            repository.save(product);
-            purchaseProducts.add(mapper.toProductPurchaseResponse(product, productRequest.quantity()));
+                .collect(Collectors.toMap(
+                        ProductPurchaseRequest::productId,
+                        ProductPurchaseRequest::quantity,
+                        Double::sum,
+                        TreeMap::new
+                ));
+    }
+
+    private Map<Integer, Product> findAllExisting(SortedMap<Integer, Double> quantities) {
+        var storedProducts = repository.findAllByIdInOrderById(new ArrayList<>(quantities.keySet()));
+        if (quantities.size() != storedProducts.size()) {
+            throw new ProductPurchaseException("Some products does not exist");
         }
-        return purchaseProducts;
+        return storedProducts
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
     }
 
     public ProductResponse findById(Integer productId) {
-        return repository.findById(productId)
+        return singleFlight.execute("findById", productId, () -> repository.findRowById(productId)
                 .map(mapper::toProductResponse)
-                .orElseThrow(() -> new EntityNotFoundException("Product not found with the provided ID " + productId));
+                .orElseThrow(() -> new EntityNotFoundException("Product not found with the provided ID " + productId)));
     }
 
     public List<ProductResponse> findAll() {
-        return repository.findAll()
+        // the list is handed to every coalesced caller, so it must not be modifiable
+        return singleFlight.execute("findAll", "all", () -> repository.findAllRows()
+                .stream()
+                .map(mapper::toProductResponse)
+                .toList());
+    }
+
+    public ProductPageResponse findPage(Integer after, int size) {
+        var products = repository.findRowsAfter(after == null ? 0 : after, Limit.of(size))
                 .stream()
                 .map(mapper::toProductResponse)
                 .collect(Collectors.toList());
+        var nextCursor = products.size() < size ? null : products.get(products.size() - 1).id();
+        return new ProductPageResponse(products, nextCursor);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAll(OutputStream out) throws IOException {
+        try (Stream<ProductRow> products = repository.streamAllRows()) {
+            var iterator = products.iterator();
+            while (iterator.hasNext()) {
+                out.write(objectMapper.writeValueAsBytes(mapper.toProductResponse(iterator.next())));
+                out.write('\n');
+            }
+        }
     }
 }
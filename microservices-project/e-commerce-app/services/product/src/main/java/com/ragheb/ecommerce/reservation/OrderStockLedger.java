@@ -0,0 +1,59 @@
+package com.ragheb.ecommerce.reservation;
+
+import com.ragheb.ecommerce.exception.ProductPurchaseException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Records, per order, whether its stock has been purchased or released, so the order saga can
+ * retry both calls safely. The row is written in the same transaction as the stock change: a
+ * purchase that rolls back leaves no trace, and a release that comes first leaves a RELEASED
+ * marker that makes a late purchase of the same order fail instead of reserving stock again.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderStockLedger {
+
+    private static final String INSERT_SQL =
+            "insert into order_stock (order_id, status) values (?, ?) on conflict (order_id) do nothing";
+    private static final String STATUS_SQL =
+            "select status from order_stock where order_id = ?";
+    private static final String RELEASE_SQL =
+            "update order_stock set status = 'RELEASED' where order_id = ? and status = 'PURCHASED'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return {@code true} if the stock of the order still has to be reserved, {@code false} if
+     * an earlier call already reserved it
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean claimPurchase(Integer orderId) {
+        if (jdbcTemplate.update(INSERT_SQL, orderId, "PURCHASED") == 1) {
+            return true;
+        }
+        var status = jdbcTemplate.queryForObject(STATUS_SQL, String.class, orderId);
+        if (!"PURCHASED".equals(status)) {
+            throw new ProductPurchaseException(
+                    String.format("The stock of order %s has already been released", orderId)
+            );
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true} if the stock of the order was reserved and has to be given back,
+     * {@code false} if it was never reserved or has already been released
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean claimRelease(Integer orderId) {
+        // insert first: if a purchase of the same order is still in flight the insert waits for it
+        if (jdbcTemplate.update(INSERT_SQL, orderId, "RELEASED") == 1) {
+            return false;
+        }
+        return jdbcTemplate.update(RELEASE_SQL, orderId) == 1;
+    }
+}
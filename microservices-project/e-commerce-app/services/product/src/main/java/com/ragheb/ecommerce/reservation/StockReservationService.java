@@ -0,0 +1,105 @@
+package com.ragheb.ecommerce.reservation;
+
+import com.ragheb.ecommerce.exception.ProductPurchaseException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Applies stock decrements as one batch of conditional UPDATEs. The database checks the
+ * available quantity and decrements it atomically, so concurrent purchases cannot lose updates,
+ * and rows are always touched in product id order to keep lock acquisition deadlock free.
+ */
+@Service
+public class StockReservationService {
+
+    private static final String RESERVE_SQL =
+            "update product set available_quantity = available_quantity - ? where id = ? and available_quantity >= ?";
+    private static final String RELEASE_SQL =
+            "update product set available_quantity = available_quantity + ? where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Timer reservationTimer;
+    private final Counter shortfallCounter;
+    private final Counter contentionCounter;
+
+    public StockReservationService(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.reservationTimer = Timer.builder("product.stock.reservation")
+                .description("Time spent applying a batch of stock decrements")
+                .register(meterRegistry);
+        this.shortfallCounter = Counter.builder("product.stock.shortfall")
+                .description("Reserved items rejected because of insufficient stock")
+                .register(meterRegistry);
+        this.contentionCounter = Counter.builder("product.stock.contention")
+                .description("Reserved items that had enough stock when read but lost it to a concurrent purchase")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param quantities requested quantity per product id
+     * @param observedStock available quantity per product id as read before reserving
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(SortedMap<Integer, Double> quantities, Map<Integer, Double> observedStock) {
+        var items = new ArrayList<>(quantities.entrySet());
+        int[] updated = reservationTimer.record(() -> jdbcTemplate.batchUpdate(RESERVE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setDouble(1, items.get(i).getValue());
+                ps.setInt(2, items.get(i).getKey());
+                ps.setDouble(3, items.get(i).getValue());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return items.size();
+            }
+        }));
+        List<Integer> shortItems = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (updated[i] == 0) {
+                var item = items.get(i);
+                shortItems.add(item.getKey());
+                if (observedStock.getOrDefault(item.getKey(), 0d) >= item.getValue()) {
+                    contentionCounter.increment();
+                }
+            }
+        }
+        if (!shortItems.isEmpty()) {
+            shortfallCounter.increment(shortItems.size());
+            throw new ProductPurchaseException(
+                    String.format("Products %s do not have enough quantity", shortItems)
+            );
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(SortedMap<Integer, Double> quantities) {
+        var items = new ArrayList<>(quantities.entrySet());
+        jdbcTemplate.batchUpdate(RELEASE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setDouble(1, items.get(i).getValue());
+                ps.setInt(2, items.get(i).getKey());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return items.size();
+            }
+        });
+    }
+}
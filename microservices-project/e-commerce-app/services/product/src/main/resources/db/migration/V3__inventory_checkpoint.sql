@@ -0,0 +1,7 @@
+create table if not exists inventory_checkpoint
+(
+    id            integer not null primary key,
+    last_sequence bigint  not null
+);
+
+insert into inventory_checkpoint (id, last_sequence) values (1, 0) on conflict (id) do nothing;
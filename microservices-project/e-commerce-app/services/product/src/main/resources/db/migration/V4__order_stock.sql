@@ -0,0 +1,6 @@
+create table if not exists order_stock
+(
+    order_id     integer     not null primary key,
+    status       varchar(20) not null,
+    created_date timestamp   not null default now()
+);
@@ -0,0 +1,12 @@
+create table if not exists inventory_journal_checkpoint
+(
+    journal_id    varchar(64) not null primary key,
+    last_sequence bigint      not null
+);
+
+-- journals written before they had an id keep the checkpoint of the old single row
+insert into inventory_journal_checkpoint (journal_id, last_sequence)
+select 'legacy', last_sequence from inventory_checkpoint where id = 1
+on conflict (journal_id) do nothing;
+
+drop table if exists inventory_checkpoint;
@@ -0,0 +1,107 @@
+package com.ragheb.ecommerce.product;
+
+import com.ragheb.ecommerce.category.Category;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The listings read {@link ProductRow} projections, categories are added from the category
+ * cache. Each listing must be a single select on the product table, whatever the number of
+ * products and categories.
+ */
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.flyway.enabled=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.ragheb.ecommerce.product.ProductRepositoryQueryTest$RecordingStatementInspector"
+})
+class ProductRepositoryQueryTest {
+
+    private static final int PRODUCT_COUNT = 30;
+
+    @Autowired
+    private ProductRepository repository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Integer firstId;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            var category = entityManager.persist(Category.builder().name("category-" + i).build());
+            var product = entityManager.persist(Product.builder()
+                    .name("product-" + i)
+                    .description("description")
+                    .availableQuantity(10)
+                    .price(BigDecimal.TEN)
+                    .category(category)
+                    .build());
+            if (firstId == null) {
+                firstId = product.getId();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        RecordingStatementInspector.STATEMENTS.clear();
+    }
+
+    @Test
+    void listsAllRowsInOneQueryWithoutJoiningCategories() {
+        List<ProductRow> rows = repository.findAllRows();
+
+        assertThat(rows).hasSize(PRODUCT_COUNT).allSatisfy(row -> assertThat(row.categoryId()).isNotNull());
+        assertSingleProductSelect();
+    }
+
+    @Test
+    void pagesRowsInOneQueryWithoutJoiningCategories() {
+        List<ProductRow> rows = repository.findRowsAfter(firstId, Limit.of(10));
+
+        assertThat(rows).hasSize(10);
+        assertSingleProductSelect();
+    }
+
+    @Test
+    void readsOneRowWithoutJoiningCategories() {
+        assertThat(repository.findRowById(firstId)).isPresent();
+        assertSingleProductSelect();
+    }
+
+    @Test
+    void streamsRowsInOneQueryWithoutJoiningCategories() {
+        try (var rows = repository.streamAllRows()) {
+            assertThat(rows.count()).isEqualTo(PRODUCT_COUNT);
+        }
+        assertSingleProductSelect();
+    }
+
+    private void assertSingleProductSelect() {
+        assertThat(RecordingStatementInspector.STATEMENTS).singleElement().satisfies(sql -> {
+            assertThat(sql).containsIgnoringCase("from product");
+            assertThat(sql).doesNotContainIgnoringCase("join").doesNotContainIgnoringCase("from category");
+        });
+    }
+
+    public static class RecordingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -4,17 +4,25 @@ import com.ragheb.restful.dto.ImageDto;
 import com.ragheb.restful.exception.ResourceNotFoundException;
 import com.ragheb.restful.model.Image;
 import com.ragheb.restful.response.ApiResponse;
+import com.ragheb.restful.service.image.BlobResource;
 import com.ragheb.restful.service.image.IImageService;
+import com.ragheb.restful.service.image.ImageStore;
+import com.ragheb.restful.service.image.ImageVariantService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.sql.SQLException;
+import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 
 import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
@@ -26,7 +34,17 @@ import static org.springframework.http.HttpStatus.NOT_FOUND;
 @RequiredArgsConstructor
 public class ImageController {
 
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final IImageService imageService;
+    private final ImageStore imageStore;
+    private final ImageVariantService imageVariantService;
+
+    @Value("${image.store.cache-max-age-seconds:3600}")
+    private long cacheMaxAgeSeconds;
 
     @PostMapping("/upload")
     public ResponseEntity<ApiResponse> saveImages(@RequestParam List<MultipartFile> files, @RequestParam Long productId) {
@@ -39,12 +57,71 @@ public class ImageController {
     }
 
     @GetMapping("/image/download/{imageId}")
-    public ResponseEntity<Resource> downloadImage(@PathVariable Long imageId) throws SQLException {
+    public ResponseEntity<Resource> downloadImage(@PathVariable Long imageId,
+                                                  @RequestParam(required = false) String size,
+                                                  HttpServletRequest request,
+                                                  HttpServletResponse response) throws IOException {
         Image image = imageService.getImageById(imageId);
-        ByteArrayResource resource = new ByteArrayResource(image.getImage().getBytes(1, (int) image.getImage().length()));
-        return  ResponseEntity.ok().contentType(MediaType.parseMediaType(image.getFileType()))
-                .header(CONTENT_DISPOSITION, "attachment; filename=\"" +image.getFileName() + "\"")
-                .body(resource);
+        if (image.getStorageKey() == null) {
+            // streamed from the blob, Range requests are answered with 206 by the resource converters
+            Resource resource = new BlobResource(image.getImage(), image.getFileName());
+            return  ResponseEntity.ok().contentType(MediaType.parseMediaType(image.getFileType()))
+                    .header(CONTENT_DISPOSITION, "attachment; filename=\"" +image.getFileName() + "\"")
+                    .body(resource);
+        }
+        if (size != null) {
+            if (!imageVariantService.isVariant(size)) {
+                return ResponseEntity.badRequest().build();
+            }
+            if (imageVariantService.hasVariant(image.getStorageKey(), size)) {
+                // variants are derived from the content alone, so key and size identify the bytes;
+                // checked before loading so a revalidation does not pull the variant into the cache
+                String etag = image.getStorageKey() + "-" + size;
+                if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+                    return null;
+                }
+                // variants are never deleted, so one that exists can always be loaded
+                Resource variant = imageVariantService.loadVariant(image.getStorageKey(), size)
+                        .orElseThrow(() -> new ResourceNotFoundException("Image variant not found: " + size));
+                return ResponseEntity.ok()
+                        .contentType(MediaType.IMAGE_JPEG)
+                        .header(CONTENT_DISPOSITION, "attachment; filename=\"" + size + "-" + image.getFileName() + "\"")
+                        .eTag(etag)
+                        .cacheControl(CacheControl.maxAge(Duration.ofSeconds(cacheMaxAgeSeconds)).cachePublic())
+                        .body(variant);
+            }
+            // not generated yet, or the original is already smaller than the variant; queueing
+            // is cheap in the second case, only the image header is read to find out
+            imageVariantService.generateVariants(image.getStorageKey());
+        }
+        // the storage key is the SHA-256 of the content, so it is a strong validator
+        if (new ServletWebRequest(request, response).checkNotModified(image.getStorageKey())) {
+            return null;
+        }
+        Resource resource = imageStore.load(image.getStorageKey());
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(image.getFileType()))
+                .header(CONTENT_DISPOSITION, "attachment; filename=\"" + image.getFileName() + "\"")
+                .eTag(image.getStorageKey())
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(cacheMaxAgeSeconds)).cachePublic());
+        if (handOffToSendfile(request, resource)) {
+            return builder.contentLength(resource.contentLength()).build();
+        }
+        return builder.body(resource);
+    }
+
+    // lets Tomcat write full responses straight from the file with sendfile, ranges go through Spring
+    private boolean handOffToSendfile(HttpServletRequest request, Resource resource) throws IOException {
+        if (!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))
+                || !"GET".equals(request.getMethod())
+                || request.getHeader(HttpHeaders.RANGE) != null
+                || !resource.isFile()) {
+            return false;
+        }
+        request.setAttribute(SENDFILE_FILENAME, resource.getFile().getCanonicalPath());
+        request.setAttribute(SENDFILE_START, 0L);
+        request.setAttribute(SENDFILE_END, resource.contentLength());
+        return true;
     }
 
     @PutMapping("/image/{imageId}/update")
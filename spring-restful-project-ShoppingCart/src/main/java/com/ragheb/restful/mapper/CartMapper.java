@@ -0,0 +1,31 @@
+package com.ragheb.restful.mapper;
+
+import com.ragheb.restful.dto.CartDto;
+import com.ragheb.restful.dto.CartItemDto;
+import com.ragheb.restful.dto.ProductDto;
+import com.ragheb.restful.model.Cart;
+import com.ragheb.restful.model.CartItem;
+import com.ragheb.restful.model.Product;
+import org.mapstruct.Context;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.Named;
+
+import java.util.Map;
+
+@Mapper(componentModel = "spring")
+public interface CartMapper {
+
+    @Mapping(target = "cartId", source = "id")
+    CartDto toCartDto(Cart cart, @Context Map<Long, ProductDto> products);
+
+    @Mapping(target = "itemId", source = "id")
+    @Mapping(target = "product", qualifiedByName = "cartProduct")
+    CartItemDto toCartItemDto(CartItem cartItem, @Context Map<Long, ProductDto> products);
+
+    // the products come from ProductService, which loads the images of the whole cart in one query
+    @Named("cartProduct")
+    default ProductDto toCartProductDto(Product product, @Context Map<Long, ProductDto> products) {
+        return product == null ? null : products.get(product.getId());
+    }
+}
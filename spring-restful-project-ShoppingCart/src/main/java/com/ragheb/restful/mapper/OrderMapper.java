@@ -0,0 +1,28 @@
+package com.ragheb.restful.mapper;
+
+import com.ragheb.restful.dto.OrderDto;
+import com.ragheb.restful.dto.OrderItemDto;
+import com.ragheb.restful.model.Order;
+import com.ragheb.restful.model.OrderItem;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Mapper(componentModel = "spring")
+public interface OrderMapper {
+
+    @Mapping(target = "userId", source = "user.id")
+    @Mapping(target = "status", source = "orderStatus")
+    @Mapping(target = "items", source = "orderItems")
+    OrderDto toOrderDto(Order order);
+
+    @Mapping(target = "productId", source = "product.id")
+    @Mapping(target = "productName", source = "product.name")
+    OrderItemDto toOrderItemDto(OrderItem orderItem);
+
+    default LocalDateTime toLocalDateTime(LocalDate date) {
+        return date == null ? null : date.atStartOfDay();
+    }
+}
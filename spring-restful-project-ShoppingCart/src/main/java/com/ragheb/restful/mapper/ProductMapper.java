@@ -0,0 +1,18 @@
+package com.ragheb.restful.mapper;
+
+import com.ragheb.restful.dto.ImageDto;
+import com.ragheb.restful.dto.ProductDto;
+import com.ragheb.restful.model.Image;
+import com.ragheb.restful.model.Product;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface ProductMapper {
+
+    // images are loaded in one batch by ProductService, not through the lazy collection
+    @Mapping(target = "images", ignore = true)
+    ProductDto toProductDto(Product product);
+
+    ImageDto toImageDto(Image image);
+}
@@ -0,0 +1,18 @@
+package com.ragheb.restful.mapper;
+
+import com.ragheb.restful.dto.ProductDto;
+import com.ragheb.restful.dto.UserDto;
+import com.ragheb.restful.model.User;
+import org.mapstruct.Context;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.util.Map;
+
+@Mapper(componentModel = "spring", uses = CartMapper.class)
+public interface UserMapper {
+
+    // orders are listed through the order endpoints, not embedded in the user
+    @Mapping(target = "orders", ignore = true)
+    UserDto toUserDto(User user, @Context Map<Long, ProductDto> cartProducts);
+}
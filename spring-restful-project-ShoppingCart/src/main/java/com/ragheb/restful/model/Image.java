@@ -23,6 +23,11 @@ public class Image {
     private Blob image;
     private String downloadUrl;
 
+    // SHA-256 of the content in the image store, null for images still kept in the blob
+    @Column(length = 64)
+    private String storageKey;
+    private Long fileSize;
+
     @ManyToOne
     @JoinColumn(name = "product_id")
     private Product product;
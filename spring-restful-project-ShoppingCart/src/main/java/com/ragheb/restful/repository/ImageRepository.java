@@ -2,13 +2,31 @@ package com.ragheb.restful.repository;
 
 import com.ragheb.restful.model.Image;
 import com.ragheb.restful.model.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ImageRepository extends JpaRepository<Image,Long> {
 
     List<Image> findByProductId(Long id);
+
+    @Query("select i.id as id, i.fileName as fileName, i.downloadUrl as downloadUrl, i.product.id as productId " +
+            "from Image i where i.product.id in :productIds order by i.id")
+    List<ImageSummary> findSummariesByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    @Query("select i.id from Image i where i.id > :after and i.storageKey is null and i.image is not null order by i.id")
+    List<Long> findBlobImageIdsAfter(@Param("after") Long after, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("update Image i set i.downloadUrl = :downloadUrl where i.id = :id")
+    void updateDownloadUrl(@Param("id") Long id, @Param("downloadUrl") String downloadUrl);
 }
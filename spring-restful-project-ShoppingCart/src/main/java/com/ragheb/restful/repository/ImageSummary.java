@@ -0,0 +1,11 @@
+package com.ragheb.restful.repository;
+
+/**
+ * Image columns needed by the product listings, without the image data itself.
+ */
+public interface ImageSummary {
+    Long getId();
+    String getFileName();
+    String getDownloadUrl();
+    Long getProductId();
+}
@@ -1,12 +1,18 @@
 package com.ragheb.restful.repository;
 
 import com.ragheb.restful.model.Product;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
+    // the category is eager, join it so the listing does not select it separately
+    @Override
+    @EntityGraph(attributePaths = "category")
+    List<Product> findAll();
+
     List<Product> findByCategoryName(String category);
 
     List<Product> findByBrand(String brand);
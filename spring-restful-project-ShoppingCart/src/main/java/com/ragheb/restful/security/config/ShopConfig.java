@@ -5,7 +5,6 @@ import com.ragheb.restful.security.Jwt.AuthTokenFilter;
 import com.ragheb.restful.security.Jwt.JwtAuthEntryPoint;
 import com.ragheb.restful.security.user.ShopUserDetailsService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -34,11 +33,6 @@ public class ShopConfig {
     private static final List<String> SECURED_URLS =
             List.of("/api/v1/carts/**", "/api/v1/cartItems/**", "/api/v1/orders/**");
 
-    @Bean
-    public ModelMapper modelMapper() {
-        return new ModelMapper();
-    }
-
     @Bean
     public PasswordEncoder passwordEncoder(){
         return new BCryptPasswordEncoder();
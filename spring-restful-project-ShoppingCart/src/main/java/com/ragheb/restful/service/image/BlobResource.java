@@ -0,0 +1,52 @@
+package com.ragheb.restful.service.image;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Blob;
+import java.sql.SQLException;
+
+/**
+ * Exposes an image {@link Blob} as a {@link org.springframework.core.io.Resource} that is read
+ * through the Blob's binary stream, so responses (including byte ranges) are copied to the
+ * client without materializing the image in a byte array first.
+ */
+public class BlobResource extends AbstractResource {
+
+    private final Blob blob;
+    private final String description;
+
+    public BlobResource(Blob blob, String description) {
+        this.blob = blob;
+        this.description = description;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        try {
+            return blob.getBinaryStream();
+        } catch (SQLException e) {
+            throw new IOException("Cannot read " + getDescription(), e);
+        }
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        try {
+            return blob.length();
+        } catch (SQLException e) {
+            throw new IOException("Cannot read the length of " + getDescription(), e);
+        }
+    }
+
+    @Override
+    public boolean exists() {
+        return blob != null;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Image blob [" + description + "]";
+    }
+}
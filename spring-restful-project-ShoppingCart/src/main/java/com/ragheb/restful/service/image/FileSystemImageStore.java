@@ -0,0 +1,111 @@
+package com.ragheb.restful.service.image;
+
+import com.ragheb.restful.exception.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps image content as files under {@code image.store.root}, at {@code ab/cd/<sha-256>}, and
+ * its variants at {@code ab/cd/<sha-256>.<variant>}.
+ * Uploads are streamed to a temporary file while hashed and then moved into place, so a file
+ * at its final path is always complete.
+ */
+@Component
+public class FileSystemImageStore implements ImageStore {
+
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern VARIANT = Pattern.compile("[a-z0-9-]{1,32}");
+
+    private final Path root;
+    private final Path tmp;
+
+    public FileSystemImageStore(@Value("${image.store.root}") String root) throws IOException {
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        this.tmp = Files.createDirectories(this.root.resolve("tmp"));
+    }
+
+    @Override
+    public StoredContent store(InputStream content) throws IOException {
+        Path temp = Files.createTempFile(tmp, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (InputStream in = new DigestInputStream(content, digest)) {
+                size = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String key = HexFormat.of().formatHex(digest.digest());
+            Path target = pathOf(key);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                // a concurrent upload of the same bytes may win the rename, the content is identical
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new StoredContent(key, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public Resource load(String key) {
+        Path path = pathOf(key);
+        if (!Files.isRegularFile(path)) {
+            throw new ResourceNotFoundException("No image content found for key: " + key);
+        }
+        return new FileSystemResource(path);
+    }
+
+    @Override
+    public void storeVariant(String key, String variant, InputStream content) throws IOException {
+        Path target = variantPathOf(key, variant);
+        Path temp = Files.createTempFile(tmp, "variant-", ".part");
+        try {
+            Files.copy(content, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public Optional<Resource> loadVariant(String key, String variant) {
+        Path path = variantPathOf(key, variant);
+        return Files.isRegularFile(path) ? Optional.of(new FileSystemResource(path)) : Optional.empty();
+    }
+
+    private Path variantPathOf(String key, String variant) {
+        if (variant == null || !VARIANT.matcher(variant).matches()) {
+            throw new IllegalArgumentException("Invalid image variant: " + variant);
+        }
+        return pathOf(key).resolveSibling(key + "." + variant);
+    }
+
+    private Path pathOf(String key) {
+        if (key == null || !KEY.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid image key: " + key);
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.ragheb.restful.service.image;
+
+import com.ragheb.restful.model.Image;
+import com.ragheb.restful.repository.ImageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Moves image content that is still stored as a Blob in the {@code image} table into the
+ * {@link ImageStore}. Enabled with {@code image.store.migrate-blobs=true}; each image is moved in
+ * its own transaction, so the migration can be stopped and restarted at any time.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "image.store.migrate-blobs", havingValue = "true")
+public class ImageBlobMigration implements ApplicationRunner {
+
+    private final ImageRepository imageRepository;
+    private final ImageStore imageStore;
+    private final ImageVariantService imageVariantService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${image.store.migration-batch-size:100}")
+    private int batchSize;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long migrated = 0;
+        long failed = 0;
+        Long after = 0L;
+        List<Long> ids;
+        do {
+            ids = imageRepository.findBlobImageIdsAfter(after, PageRequest.of(0, batchSize));
+            for (Long id : ids) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> migrate(id));
+                    migrated++;
+                } catch (RuntimeException e) {
+                    failed++;
+                    log.warn("Could not move the content of image {} to the image store", id, e);
+                }
+                after = id;
+            }
+        } while (ids.size() == batchSize);
+        log.info("Moved {} image blobs to the image store, {} failed", migrated, failed);
+    }
+
+    private void migrate(Long id) {
+        Image image = imageRepository.findById(id).orElse(null);
+        if (image == null || image.getStorageKey() != null || image.getImage() == null) {
+            return;
+        }
+        try (InputStream content = image.getImage().getBinaryStream()) {
+            ImageStore.StoredContent stored = imageStore.store(content);
+            image.setStorageKey(stored.key());
+            image.setFileSize(stored.size());
+            image.setImage(null);
+            imageVariantService.generateVariants(stored.key());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -7,13 +7,11 @@ import com.ragheb.restful.model.Product;
 import com.ragheb.restful.repository.ImageRepository;
 import com.ragheb.restful.service.product.IProductService;
 import lombok.RequiredArgsConstructor;
-import org.hibernate.annotations.processing.SQL;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.sql.rowset.serial.SerialBlob;
 import java.io.IOException;
-import java.sql.SQLException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,6 +21,8 @@ public class ImageService implements IImageService {
 
     private final ImageRepository imageRepository;
     private final IProductService productService;
+    private final ImageStore imageStore;
+    private final ImageVariantService imageVariantService;
 
     @Override
     public Image getImageById(Long id) {
@@ -47,24 +47,21 @@ public class ImageService implements IImageService {
                 Image image = new Image();
                 image.setFileName(file.getOriginalFilename());
                 image.setFileType(file.getContentType());
-                image.setImage(new SerialBlob(file.getBytes()));
+                storeContent(image, file);
                 image.setProduct(product);
-
-                String buildDownloadUrl = "/api/v1/images/image/download/";
-                String downloadUrl = buildDownloadUrl + image.getId();
-                image.setDownloadUrl(downloadUrl);
                 Image savedImage = imageRepository.save(image);
 
-                savedImage.setDownloadUrl(buildDownloadUrl + savedImage.getId());
-                imageRepository.save(savedImage);
+                // only the url column is updated, the saved row is not written again
+                String downloadUrl = "/api/v1/images/image/download/" + savedImage.getId();
+                imageRepository.updateDownloadUrl(savedImage.getId(), downloadUrl);
 
                 ImageDto imageDto = new ImageDto();
                 imageDto.setId(savedImage.getId());
                 imageDto.setFileName(savedImage.getFileName());
-                imageDto.setDownloadUrl(savedImage.getDownloadUrl());
+                imageDto.setDownloadUrl(downloadUrl);
                 savedImageDto.add(imageDto);
 
-            } catch (IOException | SQLException e) {
+            } catch (IOException e) {
                 throw new RuntimeException(e.getMessage());
             }
         }
@@ -77,10 +74,21 @@ public class ImageService implements IImageService {
         try {
             image.setFileName(file.getOriginalFilename());
             image.setFileType(file.getContentType());
-            image.setImage(new SerialBlob(file.getBytes()));
+            storeContent(image, file);
             imageRepository.save(image);
-        } catch (IOException | SQLException e) {
+        } catch (IOException e) {
             throw new RuntimeException(e.getMessage());
         }
     }
+
+    // streams the multipart part (spooled to disk by the container) into the image store
+    private void storeContent(Image image, MultipartFile file) throws IOException {
+        try (InputStream content = file.getInputStream()) {
+            ImageStore.StoredContent stored = imageStore.store(content);
+            image.setStorageKey(stored.key());
+            image.setFileSize(stored.size());
+            image.setImage(null);
+        }
+        imageVariantService.generateVariants(image.getStorageKey());
+    }
 }
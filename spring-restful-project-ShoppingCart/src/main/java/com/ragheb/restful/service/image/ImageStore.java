@@ -0,0 +1,26 @@
+package com.ragheb.restful.service.image;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Storage for image content, addressed by the SHA-256 of the bytes. Storing the same bytes twice
+ * returns the same key and keeps a single copy. Derived variants (resized copies) are kept next
+ * to the content they were made from, under the same key and a variant name.
+ */
+public interface ImageStore {
+
+    StoredContent store(InputStream content) throws IOException;
+
+    Resource load(String key);
+
+    void storeVariant(String key, String variant, InputStream content) throws IOException;
+
+    Optional<Resource> loadVariant(String key, String variant);
+
+    record StoredContent(String key, long size) {
+    }
+}
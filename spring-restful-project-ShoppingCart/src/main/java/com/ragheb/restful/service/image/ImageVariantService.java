@@ -0,0 +1,220 @@
+package com.ragheb.restful.service.image;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates the resized JPEG variants of uploaded images on a bounded worker pool and serves
+ * them through an LRU cache. Each variant is named in {@code image.variants.sizes} together with
+ * the maximum length of its longest edge; images that already fit are not upscaled and have no
+ * variant, so callers fall back to the original. Images with more than
+ * {@code image.variants.max-pixels} pixels are not decoded at all and have no variants either.
+ * When the queue is full the work is dropped rather than run on the uploading request thread; a
+ * variant that is missing is generated again the first time it is requested.
+ */
+@Slf4j
+@Service
+public class ImageVariantService {
+
+    private final ImageStore imageStore;
+    private final Map<String, Integer> sizes;
+    private final float jpegQuality;
+    private final long maxPixels;
+    private final ImageVariantCache cache;
+    private final ThreadPoolExecutor executor;
+    // images queued or being processed, so repeated misses do not queue the same work again
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    public ImageVariantService(ImageStore imageStore,
+                               @Value("#{${image.variants.sizes}}") Map<String, Integer> sizes,
+                               @Value("${image.variants.jpeg-quality:0.8}") float jpegQuality,
+                               @Value("${image.variants.max-pixels:40000000}") long maxPixels,
+                               @Value("${image.variants.cache-max-bytes:33554432}") long cacheMaxBytes,
+                               @Value("${image.variants.workers:2}") int workers,
+                               @Value("${image.variants.queue-capacity:100}") int queueCapacity) {
+        this.imageStore = imageStore;
+        this.sizes = Map.copyOf(sizes);
+        this.jpegQuality = jpegQuality;
+        this.maxPixels = maxPixels;
+        this.cache = new ImageVariantCache(cacheMaxBytes);
+        AtomicInteger threads = new AtomicInteger();
+        // decoding holds the full bitmap in memory, so the pool and its queue are bounded and
+        // work beyond them is rejected instead of piling up or running on request threads
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public boolean isVariant(String name) {
+        return sizes.containsKey(name);
+    }
+
+    /**
+     * Queues the generation of the variants of the image that do not exist yet. Returns at once,
+     * also when the queue is full, in which case the variants are left for a later request.
+     */
+    public void generateVariants(String key) {
+        if (!pending.add(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(key);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Could not generate the variants of image {}", key, e);
+                } finally {
+                    pending.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(key);
+            log.info("Variant queue is full, the variants of image {} are generated when first requested", key);
+        }
+    }
+
+    /**
+     * Whether the variant exists, without reading its content.
+     */
+    public boolean hasVariant(String key, String variant) {
+        return cache.get(key + "." + variant) != null || imageStore.loadVariant(key, variant).isPresent();
+    }
+
+    public Optional<Resource> loadVariant(String key, String variant) {
+        String cacheKey = key + "." + variant;
+        byte[] content = cache.get(cacheKey);
+        if (content == null) {
+            Optional<Resource> stored = imageStore.loadVariant(key, variant);
+            if (stored.isEmpty()) {
+                return Optional.empty();
+            }
+            try (InputStream in = stored.get().getInputStream()) {
+                content = in.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            cache.put(cacheKey, content);
+        }
+        return Optional.of(new ByteArrayResource(content));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // reads the dimensions from the header first, the decoded bitmap takes 4 bytes per pixel, so
+    // a request for a variant the image does not need never decodes it
+    private void generate(String key) throws IOException {
+        try (InputStream content = imageStore.load(key).getInputStream();
+             ImageInputStream in = ImageIO.createImageInputStream(content)) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                log.debug("Image {} is not in a format that can be decoded, no variants generated", key);
+                return;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    log.debug("Image {} has {} pixels, more than the {} allowed, no variants generated", key, pixels, maxPixels);
+                    return;
+                }
+                int longestEdge = Math.max(reader.getWidth(0), reader.getHeight(0));
+                List<Map.Entry<String, Integer>> missing = sizes.entrySet().stream()
+                        .filter(size -> longestEdge > size.getValue())
+                        .filter(size -> imageStore.loadVariant(key, size.getKey()).isEmpty())
+                        .toList();
+                if (missing.isEmpty()) {
+                    return;
+                }
+                BufferedImage original = reader.read(0);
+                for (Map.Entry<String, Integer> size : missing) {
+                    byte[] encoded = encode(resize(original, size.getValue()));
+                    imageStore.storeVariant(key, size.getKey(), new ByteArrayInputStream(encoded));
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // halves the image until close to the target, bilinear in one step loses too much detail
+    private BufferedImage resize(BufferedImage source, int maxEdge) {
+        double scale = (double) maxEdge / Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                // JPEG has no alpha channel, transparent areas become white
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private byte[] encode(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+}
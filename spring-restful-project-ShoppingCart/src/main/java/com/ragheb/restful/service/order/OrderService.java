@@ -3,6 +3,7 @@ package com.ragheb.restful.service.order;
 import com.ragheb.restful.dto.OrderDto;
 import com.ragheb.restful.enums.OrderStatus;
 import com.ragheb.restful.exception.ResourceNotFoundException;
+import com.ragheb.restful.mapper.OrderMapper;
 import com.ragheb.restful.model.Cart;
 import com.ragheb.restful.model.Order;
 import com.ragheb.restful.model.OrderItem;
@@ -11,7 +12,6 @@ import com.ragheb.restful.repository.OrderRepository;
 import com.ragheb.restful.repository.ProductRepository;
 import com.ragheb.restful.service.cart.CartService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -27,7 +27,7 @@ public class OrderService implements IOrderService {
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
     private final CartService cartService;
-    private final ModelMapper modelMapper;
+    private final OrderMapper orderMapper;
 
     @Transactional
     @Override
@@ -85,6 +85,6 @@ public class OrderService implements IOrderService {
     }
 
     private OrderDto convertToDto(Order order) {
-        return modelMapper.map(order, OrderDto.class);
+        return orderMapper.toOrderDto(order);
     }
 }
@@ -3,20 +3,22 @@ package com.ragheb.restful.service.product;
 import com.ragheb.restful.dto.ImageDto;
 import com.ragheb.restful.dto.ProductDto;
 import com.ragheb.restful.exception.ResourceNotFoundException;
+import com.ragheb.restful.mapper.ProductMapper;
 import com.ragheb.restful.model.Category;
-import com.ragheb.restful.model.Image;
 import com.ragheb.restful.model.Product;
 import com.ragheb.restful.repository.CategoryRepository;
 import com.ragheb.restful.repository.ImageRepository;
+import com.ragheb.restful.repository.ImageSummary;
 import com.ragheb.restful.repository.ProductRepository;
 import com.ragheb.restful.request.AddProductRequest;
 import com.ragheb.restful.request.ProductUpdatedRequest;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -24,7 +26,7 @@ public class ProductService implements IProductService {
 
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
-    private final ModelMapper modelMapper;
+    private final ProductMapper productMapper;
     private final ImageRepository imageRepository;
 
     @Override
@@ -125,17 +127,34 @@ public class ProductService implements IProductService {
 
     @Override
     public List<ProductDto> getConvertedProducts(List<Product> products) {
-        return products.stream().map(this::convertToDto).toList();
+        if (products.isEmpty()) {
+            return List.of();
+        }
+        // load the images of every product in one query, without their data
+        Map<Long, List<ImageDto>> imagesByProduct = imageRepository
+                .findSummariesByProductIds(products.stream().map(Product::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(ImageSummary::getProductId,
+                        Collectors.mapping(this::toImageDto, Collectors.toList())));
+        return products.stream()
+                .map(product -> {
+                    ProductDto productDto = productMapper.toProductDto(product);
+                    productDto.setImages(imagesByProduct.getOrDefault(product.getId(), List.of()));
+                    return productDto;
+                })
+                .toList();
     }
 
     @Override
     public ProductDto convertToDto(Product product) {
-        ProductDto productDto = modelMapper.map(product, ProductDto.class);
-        List<Image> images = imageRepository.findByProductId(product.getId());
-        List<ImageDto> imageDtos = images.stream()
-                .map(image -> modelMapper.map(image, ImageDto.class))
-                .toList();
-        productDto.setImages(imageDtos);
-        return productDto;
+        return getConvertedProducts(List.of(product)).get(0);
+    }
+
+    private ImageDto toImageDto(ImageSummary image) {
+        ImageDto imageDto = new ImageDto();
+        imageDto.setId(image.getId());
+        imageDto.setFileName(image.getFileName());
+        imageDto.setDownloadUrl(image.getDownloadUrl());
+        return imageDto;
     }
 }
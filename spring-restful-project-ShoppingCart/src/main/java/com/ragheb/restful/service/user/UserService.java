@@ -1,27 +1,36 @@
 package com.ragheb.restful.service.user;
 
+import com.ragheb.restful.dto.ProductDto;
 import com.ragheb.restful.dto.UserDto;
 import com.ragheb.restful.exception.AlreadyExistsException;
 import com.ragheb.restful.exception.ResourceNotFoundException;
+import com.ragheb.restful.mapper.UserMapper;
+import com.ragheb.restful.model.CartItem;
+import com.ragheb.restful.model.Product;
 import com.ragheb.restful.model.User;
 import com.ragheb.restful.repository.UserRepository;
 import com.ragheb.restful.request.CreateUserRequest;
 import com.ragheb.restful.request.UserUpdateRequest;
+import com.ragheb.restful.service.product.IProductService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class UserService implements IUserService{
     private final UserRepository userRepository;
-    private final ModelMapper modelMapper;
+    private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
+    private final IProductService productService;
 
     @Override
     public User getUserById(Long userId) {
@@ -62,7 +71,12 @@ public class UserService implements IUserService{
 
     @Override
     public UserDto convertUserToDto(User user) {
-        return modelMapper.map(user, UserDto.class);
+        List<Product> cartProducts = user.getCart() == null
+                ? List.of()
+                : user.getCart().getItems().stream().map(CartItem::getProduct).distinct().toList();
+        Map<Long, ProductDto> productsById = productService.getConvertedProducts(cartProducts).stream()
+                .collect(Collectors.toMap(ProductDto::getId, Function.identity()));
+        return userMapper.toUserDto(user, productsById);
     }
 
     @Override
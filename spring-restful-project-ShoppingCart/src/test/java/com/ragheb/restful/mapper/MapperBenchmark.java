@@ -0,0 +1,94 @@
+package com.ragheb.restful.mapper;
+
+import com.ragheb.restful.dto.OrderItemDto;
+import com.ragheb.restful.dto.ProductDto;
+import com.ragheb.restful.model.Category;
+import com.ragheb.restful.model.Order;
+import com.ragheb.restful.model.OrderItem;
+import com.ragheb.restful.model.Product;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The generated mappers against ModelMapper, configured as it was before the switch, on a product
+ * listing and on the items of an order. Run it with {@code mvn -Pbenchmarks test-compile exec:exec
+ * -Dbenchmark=MapperBenchmark}, the gc profiler adds the allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({"1", "20", "100"})
+    private int size;
+
+    private ProductMapper productMapper;
+    private OrderMapper orderMapper;
+    private ModelMapper modelMapper;
+    private List<Product> products;
+    private List<OrderItem> orderItems;
+
+    @Setup
+    public void setUp() {
+        productMapper = new ProductMapperImpl();
+        orderMapper = new OrderMapperImpl();
+        modelMapper = new ModelMapper();
+        modelMapper.typeMap(Product.class, ProductDto.class)
+                .addMappings(mapper -> mapper.skip(ProductDto::setImages));
+
+        Category category = new Category("Electronics");
+        category.setId(1L);
+        Order order = new Order();
+        order.setId(1L);
+        products = new ArrayList<>();
+        orderItems = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Product product = new Product("Product " + i, "Brand", new BigDecimal("19.99"), 10, "Description " + i, category);
+            product.setId((long) i);
+            products.add(product);
+            orderItems.add(new OrderItem(order, product, 2, new BigDecimal("39.98")));
+        }
+        // both mappers must fill in the same values, otherwise the numbers compare different work
+        if (!mapStructProducts().equals(modelMapperProducts()) || !mapStructOrderItems().equals(modelMapperOrderItems())) {
+            throw new IllegalStateException("MapStruct and ModelMapper map different values");
+        }
+    }
+
+    @Benchmark
+    public List<ProductDto> mapStructProducts() {
+        return products.stream().map(productMapper::toProductDto).toList();
+    }
+
+    @Benchmark
+    public List<ProductDto> modelMapperProducts() {
+        return products.stream().map(product -> modelMapper.map(product, ProductDto.class)).toList();
+    }
+
+    @Benchmark
+    public List<OrderItemDto> mapStructOrderItems() {
+        return orderItems.stream().map(orderMapper::toOrderItemDto).toList();
+    }
+
+    @Benchmark
+    public List<OrderItemDto> modelMapperOrderItems() {
+        return orderItems.stream().map(item -> modelMapper.map(item, OrderItemDto.class)).toList();
+    }
+}
@@ -0,0 +1,86 @@
+package com.ragheb.restful.service.product;
+
+import com.ragheb.restful.dto.ProductDto;
+import com.ragheb.restful.mapper.ProductMapperImpl;
+import com.ragheb.restful.model.Category;
+import com.ragheb.restful.model.Image;
+import com.ragheb.restful.model.Product;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * GET /products/all loads the products and then converts them, which used to cost one image
+ * query per product. Both steps together must stay at two statements however many products
+ * are listed.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({ProductService.class, ProductMapperImpl.class})
+class ProductServiceQueryCountTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 5, 50})
+    void listsProductsWithTheirImagesInTwoQueries(int productCount) {
+        saveProducts(productCount);
+
+        statistics.clear();
+        List<Product> products = productService.getAllProducts();
+        List<ProductDto> productDtos = productService.getConvertedProducts(products);
+
+        assertThat(productDtos).hasSize(productCount);
+        assertThat(productDtos).allSatisfy(productDto -> {
+            assertThat(productDto.getCategory().getName()).isNotNull();
+            assertThat(productDto.getImages()).hasSize(2);
+        });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    private void saveProducts(int productCount) {
+        for (int i = 0; i < productCount; i++) {
+            // a category per product, so a lazy or per-row category load would show up as well
+            var category = entityManager.persist(new Category("category-" + i));
+            var product = entityManager.persist(new Product("product-" + i, "brand", BigDecimal.TEN, 10, "description", category));
+            for (int j = 0; j < 2; j++) {
+                entityManager.persist(Image.builder()
+                        .fileName("image-" + i + "-" + j + ".jpg")
+                        .fileType("image/jpeg")
+                        .downloadUrl("/api/v1/images/image/download/" + i + "-" + j)
+                        .product(product)
+                        .build());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+}